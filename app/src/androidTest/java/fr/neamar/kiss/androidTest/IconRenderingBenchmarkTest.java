@@ -0,0 +1,51 @@
+package fr.neamar.kiss.androidTest;
+
+import static androidx.test.platform.app.InstrumentationRegistry.getInstrumentation;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+import androidx.test.filters.LargeTest;
+
+import org.junit.Test;
+
+import fr.neamar.kiss.utils.BitmapPool;
+import fr.neamar.kiss.utils.DrawableUtils;
+import fr.neamar.kiss.utils.IconShape;
+
+/**
+ * Counts bitmaps allocated per rendered icon, for a result list of 300 generated icons.
+ */
+@LargeTest
+public class IconRenderingBenchmarkTest {
+    private static final String TAG = IconRenderingBenchmarkTest.class.getSimpleName();
+    private static final int ICON_COUNT = 300;
+
+    @Test
+    public void testAllocationsPerIcon() {
+        Context context = getInstrumentation().getTargetContext();
+        BitmapPool pool = BitmapPool.getInstance();
+        pool.clear();
+
+        int allocations = pool.getAllocationCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < ICON_COUNT; i++) {
+            // same steps as IconsHandler for a generated icon: render letter, then mask it
+            Drawable letter = DrawableUtils.generateCodepointDrawable(context, 'A' + i % 26, Color.WHITE, Color.BLUE, IconShape.SHAPE_SQUARE);
+            Drawable masked = DrawableUtils.applyIconMaskShape(context, letter, IconShape.SHAPE_CIRCLE, false, Color.TRANSPARENT);
+            if (masked != letter) {
+                pool.release(letter);
+            }
+        }
+        long duration = System.nanoTime() - start;
+        float allocationsPerIcon = (pool.getAllocationCount() - allocations) / (float) ICON_COUNT;
+
+        Log.i(TAG, "Rendered " + ICON_COUNT + " icons in " + duration / 1000000 + "ms, " + allocationsPerIcon + " bitmap allocations per icon, pool: " + pool);
+        // only masked icon is allocated, intermediate letter bitmap is reused
+        assertThat(allocationsPerIcon, lessThanOrEqualTo(1f + 1f / ICON_COUNT));
+    }
+}
@@ -8,7 +8,6 @@ import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.os.Bundle;
-import android.text.TextUtils;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -32,6 +31,7 @@ import java.util.Set;
 
 import fr.neamar.kiss.icons.DrawableInfo;
 import fr.neamar.kiss.icons.IconPack;
+import fr.neamar.kiss.icons.IconSearchIndex;
 import fr.neamar.kiss.normalizer.StringNormalizer;
 import fr.neamar.kiss.utils.TrimmingTextChangedListener;
 import fr.neamar.kiss.utils.Utilities;
@@ -39,7 +39,17 @@ import fr.neamar.kiss.utils.fuzzy.FuzzyFactory;
 import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
 
 public class CustomIconDialog extends DialogFragment {
+    /**
+     * Number of icons added to the grid at once
+     */
+    private static final int PAGE_SIZE = 200;
+
     private final List<IconData> mIconData = new ArrayList<>();
+    // all icons matching current search, mIconData contains the pages displayed so far
+    private List<IconData> mMatchingIconData = new ArrayList<>();
+    private IconSearchIndex<IconData> mSearchIndex = null;
+    // next page is posted already, don't post it again for every scroll event
+    private boolean mPageLoadPending = false;
     private ComponentName mSelectedDrawable = null;
     private RecyclerView mIconView;
     private TextView mSearch;
@@ -47,7 +57,7 @@ public class CustomIconDialog extends DialogFragment {
     private TextView mPreviewText;
     private OnDismissListener mOnDismissListener = null;
     private OnConfirmListener mOnConfirmListener = null;
-    private Utilities.AsyncRun<Void> mLoadIconsPackTask = null;
+    private Utilities.AsyncRun<IconSearchIndex<IconData>> mLoadIconsPackTask = null;
 
     public interface OnDismissListener {
         void onDismiss(@NonNull CustomIconDialog dialog);
@@ -97,6 +107,22 @@ public class CustomIconDialog extends DialogFragment {
         IconAdapter iconAdapter = new IconAdapter(mIconData);
         mIconView.setAdapter(iconAdapter);
         mIconView.setHasFixedSize(true);
+        mIconView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+                if (layoutManager == null || layoutManager.getChildCount() == 0) {
+                    return;
+                }
+                View lastChild = layoutManager.getChildAt(layoutManager.getChildCount() - 1);
+                int lastVisible = lastChild != null ? layoutManager.getPosition(lastChild) : 0;
+                // load next page when less than half a page is left
+                if (!mPageLoadPending && lastVisible >= mIconData.size() - PAGE_SIZE / 2) {
+                    mPageLoadPending = true;
+                    recyclerView.post(() -> loadNextPage());
+                }
+            }
+        });
 
         iconAdapter.setOnItemClickListener((iconData) -> {
             mSelectedDrawable = iconData.componentName;
@@ -151,13 +177,16 @@ public class CustomIconDialog extends DialogFragment {
 
         IconPack iconPack = iconsHandler.getIconPack();
         cancelLoadIconsPackTask();
+        mSearchIndex = null;
         mLoadIconsPackTask = Utilities.runAsync((task) -> {
             if (!task.isCancelled() && task == mLoadIconsPackTask) {
                 iconPack.loadDrawables(context);
+                return createSearchIndex(iconPack);
             }
             return null;
-        }, (task, result) -> {
+        }, (task, searchIndex) -> {
             if (!task.isCancelled() && task == mLoadIconsPackTask) {
+                mSearchIndex = searchIndex;
                 Activity activity = Utilities.getActivity(context);
                 if (activity != null)
                     refreshList();
@@ -165,26 +194,52 @@ public class CustomIconDialog extends DialogFragment {
         });
     }
 
+    /**
+     * Normalize names of all drawables of icon pack once, so searching doesn't need to.
+     *
+     * @return search index for all drawables, sorted by component
+     */
+    @Nullable
+    private static IconSearchIndex<IconData> createSearchIndex(@NonNull IconPack iconPack) {
+        Map<ComponentName, Set<DrawableInfo>> drawables = iconPack.getDrawablesByComponent();
+        if (drawables == null) {
+            return null;
+        }
+        List<IconData> iconData = new ArrayList<>();
+        drawables.forEach((componentName, infos) -> {
+            for (DrawableInfo info : infos) {
+                iconData.add(new IconData(iconPack, componentName, info));
+            }
+        });
+        iconData.sort(Comparator.comparing(data -> data.componentName));
+        return new IconSearchIndex<>(iconData, data -> data.drawableInfo.getTextForSearch());
+    }
+
     protected void refreshList() {
         mIconData.clear();
-        IconsHandler iconsHandler = KissApplication.getApplication(requireContext()).getIconsHandler();
-        IconPack iconPack = iconsHandler.getIconPack();
-        Map<ComponentName, Set<DrawableInfo>> drawables = iconPack.getDrawablesByComponent();
-        if (drawables != null) {
-            CharSequence searchText = mSearch.getText();
-            StringNormalizer.Result normalized = StringNormalizer.normalizeWithResult(searchText, true);
+        if (mSearchIndex != null) {
+            StringNormalizer.Result normalized = StringNormalizer.normalizeWithResult(mSearch.getText(), true);
             FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(requireContext(), normalized.codePoints);
-            drawables.entrySet().forEach(entry -> {
-                ComponentName componentName = entry.getKey();
-                entry.getValue().forEach(info -> {
-                    if (TextUtils.isEmpty(searchText) ||
-                            fuzzyScore.match(info.getTextForSearch()).match)
-                        mIconData.add(new IconData(iconPack, componentName, info));
-                });
-            });
+            mMatchingIconData = mSearchIndex.search(normalized.codePoints, fuzzyScore);
+        } else {
+            mMatchingIconData = new ArrayList<>();
         }
-        mIconData.sort(Comparator.comparing(iconData -> iconData.componentName));
+        mIconData.addAll(mMatchingIconData.subList(0, Math.min(PAGE_SIZE, mMatchingIconData.size())));
         mIconView.getAdapter().notifyDataSetChanged();
+        mIconView.scrollToPosition(0);
+    }
+
+    /**
+     * Add next page of matching icons to grid
+     */
+    private void loadNextPage() {
+        mPageLoadPending = false;
+        int start = mIconData.size();
+        int end = Math.min(start + PAGE_SIZE, mMatchingIconData.size());
+        if (start < end) {
+            mIconData.addAll(mMatchingIconData.subList(start, end));
+            mIconView.getAdapter().notifyItemRangeInserted(start, end - start);
+        }
     }
 
     private static class IconData {
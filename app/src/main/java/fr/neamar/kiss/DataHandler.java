@@ -20,6 +20,7 @@ import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.core.content.ContextCompat;
 import androidx.preference.PreferenceManager;
 
@@ -51,6 +52,7 @@ import fr.neamar.kiss.db.DBHelper;
 import fr.neamar.kiss.db.HistoryMode;
 import fr.neamar.kiss.db.ShortcutRecord;
 import fr.neamar.kiss.db.ValuedHistoryRecord;
+import fr.neamar.kiss.loader.LoadScheduler;
 import fr.neamar.kiss.pojo.AppPojo;
 import fr.neamar.kiss.pojo.NameComparator;
 import fr.neamar.kiss.pojo.Pojo;
@@ -85,6 +87,22 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
     final private Context context;
     private String currentQuery;
     private final Map<String, ProviderEntry> providers = new HashMap<>();
+    /**
+     * If true, providers are plain objects from {@link fr.neamar.kiss.dataprovider.ProviderRegistry}
+     * instead of bound Android services
+     */
+    private final boolean inProcessProviders;
+    /**
+     * Settings used while searching and loading, replaced when one of them changes
+     */
+    private volatile PreferenceSnapshot preferences;
+    /**
+     * Ids excluded from history, including shortcuts of apps excluded from history.
+     * Null until computed, reset when apps, shortcuts or exclusions change.
+     */
+    private volatile Set<String> excludedFromHistoryIds = null;
+    private final Object excludedFromHistoryIdsLock = new Object();
+    private int excludedFromHistoryIdsGeneration = 0;
 
     /**
      * Initialize all providers
@@ -105,6 +123,9 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
         // Monitor changes for service preferences (to automatically start and stop services)
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
         prefs.registerOnSharedPreferenceChangeListener(this);
+        preferences = new PreferenceSnapshot(this.context, prefs);
+        // only read once, changing mode requires a restart
+        inProcessProviders = prefs.getBoolean("in-process-providers", false);
 
         // Connect to initial providers
         // Those are the complex providers, that are defined as Android services
@@ -148,6 +169,14 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        // key is null when preferences were cleared
+        if (key == null || PreferenceSnapshot.KEYS.contains(key)) {
+            preferences = new PreferenceSnapshot(context, sharedPreferences);
+        }
+        if (key == null || "excluded-apps-from-history".equals(key)) {
+            invalidateExcludedFromHistoryIds();
+        }
+
         if (key != null && key.startsWith("enable-")) {
             String providerName = key.substring(7);
             if (PROVIDER_NAMES.contains(providerName)) {
@@ -157,16 +186,18 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
                     this.disconnectFromProvider(providerName);
                 }
             }
+        } else if ("contacts-compact-storage".equals(key)) {
+            reloadContactsProvider();
         }
     }
 
     /**
-     * Generate an intent that can be used to start or stop the given provider
+     * Get class of the given provider
      *
      * @param name The name of the provider
-     * @return Android intent for this provider
+     * @return class of this provider
      */
-    private Intent providerName2Intent(String name) {
+    private Class<?> providerName2Class(String name) {
         // Build expected fully-qualified provider class name
         StringBuilder className = new StringBuilder(50);
         className.append(PROVIDER_PREFIX);
@@ -176,11 +207,25 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
 
         // Try to create reflection class instance for class name
         try {
-            return new Intent(this.context, Class.forName(className.toString()));
+            return Class.forName(className.toString());
         } catch (ClassNotFoundException e) {
-            Log.e(TAG, "Unable to get intent for provider name: " + name, e);
+            Log.e(TAG, "Unable to get class for provider name: " + name, e);
+            return null;
+        }
+    }
+
+    /**
+     * Generate an intent that can be used to start or stop the given provider
+     *
+     * @param name The name of the provider
+     * @return Android intent for this provider
+     */
+    private Intent providerName2Intent(String name) {
+        Class<?> providerClass = providerName2Class(name);
+        if (providerClass == null) {
             return null;
         }
+        return new Intent(this.context, providerClass);
     }
 
     /**
@@ -195,6 +240,21 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
         }
 
         Log.v(TAG, "Connecting to " + name);
+        final long start = System.currentTimeMillis();
+
+        if (inProcessProviders) {
+            Class<?> providerClass = providerName2Class(name);
+            if (providerClass == null) {
+                return;
+            }
+            ProviderEntry entry = new ProviderEntry();
+            entry.provider = KissApplication.getApplication(context).getProviderRegistry().getProvider(name, providerClass);
+            if (entry.provider != null) {
+                this.providers.put(name, entry);
+                Log.d(TAG, "Time to connect to in-process " + name + ": " + (System.currentTimeMillis() - start) + "ms");
+            }
+            return;
+        }
 
         // Find provider class for the given service name
         final Intent intent = this.providerName2Intent(name);
@@ -266,6 +326,7 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
                 // Update provider info so that it contains something useful
                 entry.provider = binder.getService();
                 entry.connection = this;
+                Log.d(TAG, "Time to connect to service " + name + ": " + (System.currentTimeMillis() - start) + "ms");
             }
 
             @Override
@@ -294,7 +355,9 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
         }
 
         // Stop provider service
-        if (entry.provider != null) {
+        if (inProcessProviders) {
+            KissApplication.getApplication(context).getProviderRegistry().removeProvider(name);
+        } else if (entry.provider != null) {
             this.context.stopService(new Intent(this.context, entry.provider.getClass()));
         }
 
@@ -303,6 +366,44 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
         this.context.sendBroadcast(loadOver);
     }
 
+    /**
+     * Check if all providers of given stage and all stages with higher priority are loaded.
+     * Results for these providers can be displayed before everything is loaded.
+     *
+     * @param stage stage to check
+     * @return true, if given stage is loaded
+     */
+    public boolean isStageLoaded(LoadScheduler.Stage stage) {
+        for (Map.Entry<String, ProviderEntry> entry : this.providers.entrySet()) {
+            LoadScheduler.Stage providerStage = getProviderStage(entry.getKey());
+            if (providerStage != null && providerStage.compareTo(stage) <= 0) {
+                IProvider<?> provider = entry.getValue().provider;
+                if (provider == null || !provider.isLoaded()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name Data provider name (i.e.: `AppProvider` → `"app"`)
+     * @return stage in which provider is loaded, null for simple providers which are always loaded
+     */
+    @Nullable
+    private static LoadScheduler.Stage getProviderStage(String name) {
+        switch (name) {
+            case "app":
+                return LoadScheduler.Stage.APPS;
+            case "shortcuts":
+                return LoadScheduler.Stage.SHORTCUTS;
+            case "contacts":
+                return LoadScheduler.Stage.CONTACTS;
+            default:
+                return null;
+        }
+    }
+
     public boolean isAllProvidersLoaded() {
         for (ProviderEntry entry : this.providers.values()) {
             if (entry.provider == null || !entry.provider.isLoaded()) {
@@ -440,8 +541,15 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
      * @return history mode from settings: Recency vs Frecency vs Frequency vs Adaptive vs Alphabetically
      */
     public HistoryMode getHistoryMode() {
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        return HistoryMode.valueById(prefs.getString("history-mode", "recency"));
+        return preferences.getHistoryMode();
+    }
+
+    /**
+     * @return current values of settings used while searching and loading, can be used from any thread
+     */
+    @NonNull
+    public PreferenceSnapshot getPreferences() {
+        return preferences;
     }
 
     public int getHistoryLength() {
@@ -607,28 +715,81 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
         reloadShortcuts();
     }
 
+    /**
+     * @return unmodifiable set of ids excluded from history
+     */
     @NonNull
     public Set<String> getExcludedFromHistory() {
-        Set<String> excluded = PreferenceManager.getDefaultSharedPreferences(context).getStringSet("excluded-apps-from-history", null);
-        if (excluded != null) {
-            return new HashSet<>(excluded);
-        } else {
-            Set<String> defaultExcluded = new HashSet<>(1);
-            defaultExcluded.add("app://" + AppPojo.getComponentName(context.getPackageName(), MainActivity.class.getName(), UserHandle.OWNER));
-            return defaultExcluded;
+        return preferences.getExcludedFromHistory();
+    }
+
+    /**
+     * Get ids of all items excluded from history, this includes ids of all shortcuts of apps
+     * excluded from history. Shortcuts are queried only once, until apps, shortcuts or exclusions change.
+     *
+     * @return unmodifiable set of ids
+     */
+    @NonNull
+    @WorkerThread
+    public Set<String> getExcludedFromHistoryIds() {
+        Set<String> ids = excludedFromHistoryIds;
+        if (ids != null) {
+            return ids;
+        }
+
+        int generation;
+        synchronized (excludedFromHistoryIdsLock) {
+            generation = excludedFromHistoryIdsGeneration;
+        }
+        // shortcuts can only be related to apps when apps are loaded
+        AppProvider appProvider = getAppProvider();
+        boolean complete = appProvider == null || appProvider.isLoaded();
+
+        Set<String> excludedFromHistory = getExcludedFromHistory();
+        Set<String> excludedIds = new HashSet<>(excludedFromHistory);
+        // add ids of shortcuts for excluded apps
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            for (String id : excludedFromHistory) {
+                Pojo pojo = getItemById(id);
+                if (pojo instanceof AppPojo) {
+                    List<ShortcutInfo> shortcutInfos = ShortcutUtil.getShortcuts(context, ((AppPojo) pojo).packageName);
+                    for (ShortcutInfo shortcutInfo : shortcutInfos) {
+                        ShortcutRecord shortcutRecord = ShortcutUtil.createShortcutRecord(context, shortcutInfo, !shortcutInfo.isPinned());
+                        if (shortcutRecord != null) {
+                            excludedIds.add(ShortcutUtil.generateShortcutId(new UserHandle(context, shortcutInfo.getUserHandle()), shortcutRecord));
+                        }
+                    }
+                }
+            }
         }
+        ids = Collections.unmodifiableSet(excludedIds);
+
+        synchronized (excludedFromHistoryIdsLock) {
+            // don't keep result if something changed in the meantime
+            if (complete && generation == excludedFromHistoryIdsGeneration) {
+                excludedFromHistoryIds = ids;
+            }
+        }
+        return ids;
     }
 
+    /**
+     * Forget ids excluded from history, they are computed again when needed.
+     * Must be called when apps, shortcuts or exclusions change.
+     */
+    public void invalidateExcludedFromHistoryIds() {
+        synchronized (excludedFromHistoryIdsLock) {
+            excludedFromHistoryIdsGeneration += 1;
+            excludedFromHistoryIds = null;
+        }
+    }
+
+    /**
+     * @return unmodifiable set of component names of excluded apps
+     */
     @NonNull
     public Set<String> getExcluded() {
-        Set<String> excluded = PreferenceManager.getDefaultSharedPreferences(context).getStringSet("excluded-apps", null);
-        if (excluded != null) {
-            return new HashSet<>(excluded);
-        } else {
-            Set<String> defaultExcluded = new HashSet<>(1);
-            defaultExcluded.add(AppPojo.getComponentName(context.getPackageName(), MainActivity.class.getName(), UserHandle.OWNER));
-            return defaultExcluded;
-        }
+        return preferences.getExcluded();
     }
 
     /**
@@ -639,39 +800,36 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
     @NonNull
     public Set<String> getExcludedFavorites() {
         Set<String> excludedFavorites = new HashSet<>();
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        if (prefs.getBoolean("exclude-favorites-apps", false)) {
+        if (preferences.isExcludeFavoritesApps()) {
             excludedFavorites.addAll(getFavoriteIds());
         }
         return excludedFavorites;
     }
 
+    /**
+     * @return unmodifiable set of package names of apps which are not allowed to show shortcuts
+     */
     @NonNull
     public Set<String> getExcludedShortcutApps() {
-        Set<String> excluded = PreferenceManager.getDefaultSharedPreferences(context).getStringSet(PREF_KEY_EXCLUDED_SHORTCUT_APPS, null);
-        if (excluded != null) {
-            return new HashSet<>(excluded);
-        } else {
-            return new HashSet<>();
-        }
+        return preferences.getExcludedShortcutApps();
     }
 
     public void addToExcludedFromHistory(AppPojo app) {
-        Set<String> excluded = getExcludedFromHistory();
+        Set<String> excluded = new HashSet<>(getExcludedFromHistory());
         excluded.add(app.id);
         PreferenceManager.getDefaultSharedPreferences(context).edit().putStringSet("excluded-apps-from-history", excluded).apply();
         app.setExcludedFromHistory(true);
     }
 
     public void removeFromExcludedFromHistory(AppPojo app) {
-        Set<String> excluded = getExcludedFromHistory();
+        Set<String> excluded = new HashSet<>(getExcludedFromHistory());
         excluded.remove(app.id);
         PreferenceManager.getDefaultSharedPreferences(context).edit().putStringSet("excluded-apps-from-history", excluded).apply();
         app.setExcludedFromHistory(false);
     }
 
     public void addToExcluded(AppPojo app) {
-        Set<String> excluded = getExcluded();
+        Set<String> excluded = new HashSet<>(getExcluded());
         excluded.add(app.getComponentName());
         PreferenceManager.getDefaultSharedPreferences(context).edit().putStringSet("excluded-apps", excluded).apply();
         app.setExcluded(true);
@@ -687,7 +845,7 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
      * Add app as an app which is not allowed to show shortcuts
      */
     public void addToExcludedShortcutApps(AppPojo app) {
-        Set<String> excluded = getExcludedShortcutApps();
+        Set<String> excluded = new HashSet<>(getExcludedShortcutApps());
         excluded.add(app.packageName);
         PreferenceManager.getDefaultSharedPreferences(context).edit().putStringSet(PREF_KEY_EXCLUDED_SHORTCUT_APPS, excluded).apply();
         app.setExcludedShortcuts(true);
@@ -695,7 +853,7 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
     }
 
     public void removeFromExcluded(AppPojo app) {
-        Set<String> excluded = getExcluded();
+        Set<String> excluded = new HashSet<>(getExcluded());
         excluded.remove(app.getComponentName());
         PreferenceManager.getDefaultSharedPreferences(context).edit().putStringSet("excluded-apps", excluded).apply();
         app.setExcluded(false);
@@ -738,7 +896,7 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
      * that is to say, this app may show shortcuts
      */
     public void removeFromExcludedShortcutApps(AppPojo app) {
-        Set<String> excluded = getExcludedShortcutApps();
+        Set<String> excluded = new HashSet<>(getExcludedShortcutApps());
         excluded.remove(app.packageName);
         PreferenceManager.getDefaultSharedPreferences(context).edit().putStringSet(PREF_KEY_EXCLUDED_SHORTCUT_APPS, excluded).apply();
         app.setExcludedShortcuts(false);
@@ -861,9 +1019,7 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
         PreferenceManager.getDefaultSharedPreferences(context).edit()
                 .putString("favorite-apps-list", favoriteIdsString + ";").apply();
 
-        boolean excludedApps = PreferenceManager.getDefaultSharedPreferences(context).
-                getBoolean("exclude-favorites-apps", false);
-        if (excludedApps) {
+        if (preferences.isExcludeFavoritesApps()) {
             reloadApps();
         }
         refreshFavorites();
@@ -995,12 +1151,8 @@ public class DataHandler implements SharedPreferences.OnSharedPreferenceChangeLi
             return;
         }
 
-        boolean frozen = PreferenceManager.getDefaultSharedPreferences(context).
-                getBoolean("freeze-history", false);
-
-        Set<String> excludedFromHistory = getExcludedFromHistory();
-
-        if (!frozen && !excludedFromHistory.contains(id)) {
+        PreferenceSnapshot preferences = this.preferences;
+        if (!preferences.isHistoryFrozen() && !preferences.getExcludedFromHistory().contains(id)) {
             DBHelper.insertHistory(this.context, currentQuery, id);
         }
     }
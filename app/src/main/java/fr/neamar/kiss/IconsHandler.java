@@ -9,7 +9,6 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.pm.ShortcutInfo;
 import android.graphics.Bitmap;
-import android.graphics.Bitmap.CompressFormat;
 import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.graphics.drawable.BitmapDrawable;
@@ -27,10 +26,10 @@ import androidx.preference.PreferenceManager;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import fr.neamar.kiss.db.AppRecord;
 import fr.neamar.kiss.db.DBHelper;
@@ -41,9 +40,12 @@ import fr.neamar.kiss.pojo.Pojo;
 import fr.neamar.kiss.result.AppResult;
 import fr.neamar.kiss.result.Result;
 import fr.neamar.kiss.result.TagDummyResult;
+import fr.neamar.kiss.utils.BitmapPool;
 import fr.neamar.kiss.utils.DrawableUtils;
+import fr.neamar.kiss.utils.IconMemoryCache;
 import fr.neamar.kiss.utils.IconShape;
 import fr.neamar.kiss.utils.Log;
+import fr.neamar.kiss.utils.PackedIconCache;
 import fr.neamar.kiss.utils.PackageManagerUtils;
 import fr.neamar.kiss.utils.UserHandle;
 
@@ -59,6 +61,9 @@ public class IconsHandler {
 
     private final PackageManager pm;
     private final Context ctx;
+    private final IconMemoryCache memoryCache;
+    private final IconMemoryCache generatedCache;
+    private final PackedIconCache diskCache;
     @Nullable
     private IconPack mIconPack = null;
     @NonNull
@@ -67,6 +72,10 @@ public class IconsHandler {
     private boolean mContactPackMask = false;
     private IconShape mContactsShape = IconShape.SHAPE_SYSTEM;
     private boolean mForceShape = false;
+    // identifies icon pack and all settings used when rendering app icons, part of disk cache keys
+    private volatile String mIconsCacheVersion = "";
+    // versions of packages by package name and user, see onPackagesChanged()
+    private final Map<String, String> packageVersions = new ConcurrentHashMap<>();
     private volatile Map<String, Long> customIconIds = null;
     private volatile Map<String, ComponentName> customComponents = null;
 
@@ -74,8 +83,11 @@ public class IconsHandler {
         super();
         this.ctx = ctx;
         this.pm = ctx.getPackageManager();
+        this.memoryCache = KissApplication.iconMemoryCache(ctx);
+        this.generatedCache = KissApplication.generatedIconCache(ctx);
+        this.diskCache = KissApplication.getApplication(ctx).getPackedIconCache();
         this.mSystemPack = new SystemIconPack(ctx);
-        clearOldCache();
+        clearPngCache();
         loadAvailableIconsPacks();
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(ctx);
         loadIconsPack(prefs);
@@ -127,6 +139,7 @@ public class IconsHandler {
         if (packageName == null || packageName.equalsIgnoreCase("default")) {
             cacheClear();
             mIconPack = null;
+            updateIconsCacheVersion();
             return;
         }
 
@@ -136,6 +149,24 @@ public class IconsHandler {
             // set the current icon pack
             mIconPack = KissApplication.iconPackCache(ctx).getIconPack(ctx, packageName);
         }
+        updateIconsCacheVersion();
+    }
+
+    /**
+     * Build version of icons cache from icon pack and settings, so icons don't need to be removed from disk cache
+     * when settings change: switching back to previous settings will find icons again.
+     */
+    private void updateIconsCacheVersion() {
+        String packVersion;
+        if (mIconPack != null) {
+            packVersion = PackageManagerUtils.getPackageVersion(ctx, mIconPack.getPackPackageName(), UserHandle.OWNER);
+        } else {
+            packVersion = Build.VERSION.INCREMENTAL;
+        }
+        IconShape shape = mSystemPack.getAdaptiveShape();
+        mIconsCacheVersion = getIconPack().getPackPackageName() + ":" + packVersion
+                + "|" + shape.getId() + (shape == IconShape.SHAPE_SYSTEM ? ":" + DrawableUtils.getDeviceMaskHash() : "")
+                + "|" + (mForceAdaptive ? "a" : "") + (mForceShape ? "s" : "");
     }
 
     /**
@@ -206,28 +237,41 @@ public class IconsHandler {
             useCache = false;
         }
 
-        // Search in cache
+        // Search in memory cache
+        final int generation = memoryCache.getGeneration();
         if (useCache) {
-            Drawable cacheIcon = cacheGetDrawable(cacheKey);
+            Bitmap cacheIcon = memoryCache.get(generation, cacheKey);
             if (cacheIcon != null) {
-                return cacheIcon;
+                return new BitmapDrawable(this.ctx.getResources(), cacheIcon);
             }
         }
 
-        Drawable drawable = null;
-
-        // search for custom icon
+        Long customIconId = null;
         if (useCustomIcons) {
             Map<String, Long> customIconIds = getCustomIconIds();
             if (customIconIds == null)
                 return null;
 
-            Long customIconId = customIconIds.get(cacheKey);
-            if (customIconId != null) {
-                drawable = getCustomIcon(cacheKey, customIconId);
+            customIconId = customIconIds.get(cacheKey);
+        }
+
+        // Search in disk cache
+        final String diskCacheKey = useCache ? cacheGetDiskKey(cacheKey, componentName, userHandle, customIconId) : null;
+        if (diskCacheKey != null) {
+            Bitmap cacheIcon = diskCache.get(diskCacheKey, null);
+            if (cacheIcon != null) {
+                memoryCache.put(generation, cacheKey, cacheIcon);
+                return new BitmapDrawable(this.ctx.getResources(), cacheIcon);
             }
         }
 
+        Drawable drawable = null;
+
+        // search for custom icon
+        if (customIconId != null) {
+            drawable = getCustomIcon(cacheKey, customIconId);
+        }
+
         // check the icon pack for a resource
         if (drawable == null && mIconPack != null) {
             // just checking will make this thread wait for the icon pack to load
@@ -252,15 +296,27 @@ public class IconsHandler {
 
         drawable = applyBadge(drawable, userHandle);
         if (useCache) {
-            storeDrawable(cacheGetFileName(cacheKey), drawable);
+            // convert any drawable to bitmap that can be stored
+            Bitmap bitmap = DrawableUtils.drawableToBitmap(drawable);
+            if (diskCacheKey != null) {
+                diskCache.put(diskCacheKey, bitmap);
+            }
+            memoryCache.put(generation, cacheKey, bitmap);
         }
         return drawable;
     }
 
     public Drawable getBackgroundDrawable(@ColorInt int backgroundColor) {
         final IconShape shape = getShapeForGeneratingDrawable();
+        final String cacheKey = "background/" + backgroundColor + "/" + shape;
+        final int generation = generatedCache.getGeneration();
+        Bitmap cacheIcon = generatedCache.get(generation, cacheKey);
+        if (cacheIcon != null) {
+            return new BitmapDrawable(ctx.getResources(), cacheIcon);
+        }
+
         Drawable drawable = DrawableUtils.generateBackgroundDrawable(ctx, backgroundColor, shape);
-        return forceIconMask(drawable, shape);
+        return cacheGeneratedDrawable(generation, cacheKey, forceIconMask(drawable, shape));
     }
 
     public Drawable getDrawableIconForCodepoint(@NonNull Pojo pojo, @ColorInt int textColor, @ColorInt int backgroundColor) {
@@ -271,8 +327,40 @@ public class IconsHandler {
 
         int codePoint = pojo.getName().codePointAt(0);
         final IconShape shape = getShapeForGeneratingDrawable();
+        final String cacheKey = "codepoint/" + codePoint + "/" + textColor + "/" + backgroundColor + "/" + shape;
+        final int generation = generatedCache.getGeneration();
+        Bitmap cacheIcon = generatedCache.get(generation, cacheKey);
+        if (cacheIcon != null) {
+            return new BitmapDrawable(ctx.getResources(), cacheIcon);
+        }
+
         Drawable drawable = DrawableUtils.generateCodepointDrawable(ctx, codePoint, textColor, backgroundColor, shape);
-        return forceIconMask(drawable, shape);
+        return cacheGeneratedDrawable(generation, cacheKey, forceIconMask(drawable, shape));
+    }
+
+    /**
+     * Store generated drawable, so identical drawables aren't rendered again.
+     *
+     * @return drawable with bitmap from cache
+     */
+    private Drawable cacheGeneratedDrawable(int generation, @NonNull String cacheKey, @NonNull Drawable drawable) {
+        Bitmap bitmap = DrawableUtils.drawableToBitmap(drawable);
+        generatedCache.put(generation, cacheKey, bitmap);
+        return new BitmapDrawable(ctx.getResources(), bitmap);
+    }
+
+    /**
+     * Remove generated drawables, e.g. if colors of theme changed.
+     */
+    public void clearGeneratedDrawables() {
+        generatedCache.newGeneration();
+    }
+
+    /**
+     * @return generation of cached icons, changes whenever all icons need to be loaded again
+     */
+    public int getIconsGeneration() {
+        return memoryCache.getGeneration();
     }
 
     public Drawable applyIconMask(@NonNull Context ctx, @NonNull Drawable drawable) {
@@ -320,19 +408,25 @@ public class IconsHandler {
 
     /**
      * Force icon mask to be applied to given drawable.
+     * Given drawable is returned to {@link BitmapPool} if replaced by masked drawable.
      *
-     * @param drawable drawable to mask
+     * @param drawable generated drawable to mask, not referenced by anyone else
      * @return masked drawable
      */
     private Drawable forceIconMask(@NonNull Drawable drawable, @NonNull IconShape shape) {
+        Drawable masked;
         // apply mask
         if (mIconPack != null && mIconPack.hasMask()) {
             // if the icon pack has a mask, use that instead of the adaptive shape
-            return mIconPack.applyBackgroundAndMask(ctx, drawable, false, Color.TRANSPARENT);
+            masked = mIconPack.applyBackgroundAndMask(ctx, drawable, false, Color.TRANSPARENT);
         } else {
             // use adaptive shape
-            return DrawableUtils.applyIconMaskShape(ctx, drawable, shape, false, Color.TRANSPARENT);
+            masked = DrawableUtils.applyIconMaskShape(ctx, drawable, shape, false, Color.TRANSPARENT);
+        }
+        if (masked != drawable) {
+            BitmapPool.getInstance().release(drawable);
         }
+        return masked;
     }
 
     /**
@@ -393,6 +487,31 @@ public class IconsHandler {
         }
     }
 
+    /**
+     * Forget everything cached for given packages, e.g. after they were installed, updated or removed.
+     * Icons of all other packages stay cached.
+     *
+     * @param packageNames changed packages
+     * @return false, if current icon pack is one of them and icons handler needs to be recreated
+     */
+    public boolean onPackagesChanged(@NonNull String[] packageNames) {
+        for (String packageName : packageNames) {
+            if (mIconPack != null && mIconPack.getPackPackageName().equals(packageName)) {
+                return false;
+            }
+        }
+        for (String packageName : packageNames) {
+            String packageKeyPrefix = packageName + "#";
+            packageVersions.keySet().removeIf(key -> key.equals(packageName) || key.startsWith(packageKeyPrefix));
+            String iconKeyPrefix = packageName + "/";
+            memoryCache.remove(key -> key.startsWith(iconKeyPrefix));
+        }
+        // an icon pack may have been installed or removed
+        iconsPacks.clear();
+        loadAvailableIconsPacks();
+        return true;
+    }
+
     public Map<String, String> getIconsPacks() {
         return iconsPacks;
     }
@@ -402,58 +521,36 @@ public class IconsHandler {
         return mIconPack != null ? mIconPack : mSystemPack;
     }
 
-    private boolean isDrawableInCache(String key) {
-        File drawableFile = cacheGetFileName(key);
-        return drawableFile.isFile();
-    }
-
-    private void storeDrawable(File drawableFile, Drawable drawable) {
-        // convert any drawable to bitmap that can be stored
-        Bitmap bitmap = DrawableUtils.drawableToBitmap(drawable);
-        if (bitmap != null) {
-            try (FileOutputStream fos = new FileOutputStream(drawableFile)) {
-                bitmap.compress(CompressFormat.PNG, 100, fos);
-                fos.flush();
-            } catch (Exception e) {
-                Log.e(TAG, "Unable to store drawable in cache ", e);
-            }
-        }
-    }
-
-    private Drawable cacheGetDrawable(String key) {
-
-        if (!isDrawableInCache(key)) {
-            return null;
-        }
-
-        try (FileInputStream fis = new FileInputStream(cacheGetFileName(key))) {
-            Bitmap bitmap = BitmapFactory.decodeStream(fis);
-            if (bitmap != null) {
-                return new BitmapDrawable(this.ctx.getResources(), bitmap);
-            } else {
-                Log.w(TAG, "Unable to get drawable from cache for " + key);
+    /**
+     * create key for icons cache like this
+     * {key}|{apk_version}|{custom_icon_id}|{icons_cache_version}
+     * Key contains everything the icon depends on, so icons in cache never need to be invalidated.
+     *
+     * @return key, null if icon shouldn't be cached
+     */
+    @Nullable
+    private String cacheGetDiskKey(@NonNull String key, @NonNull ComponentName componentName, @NonNull UserHandle userHandle, @Nullable Long customIconId) {
+        String packageName = componentName.getPackageName();
+        String packageKey = userHandle.addUserSuffixToString(packageName, '#');
+        String packageVersion = packageVersions.get(packageKey);
+        if (packageVersion == null) {
+            packageVersion = PackageManagerUtils.getPackageVersion(ctx, packageName, userHandle);
+            if (packageVersion == null) {
+                return null;
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Unable to get drawable from cache for " + key, e);
+            packageVersions.put(packageKey, packageVersion);
         }
-
-        return null;
+        return key + "|" + packageVersion + "|" + (customIconId != null ? customIconId : "") + "|" + mIconsCacheVersion;
     }
 
     /**
-     * create path for icons cache like this
-     * {cacheDir}/icons/{icons_pack_package_name}_{key_hash}.png
+     * Icons are cached in size of the largest icons shown.
+     *
+     * @return size of cached icons in px
      */
-    private File cacheGetFileName(String key) {
-        String iconsPackPackageName = getIconPack().getPackPackageName();
-        return new File(getIconsCacheDir(), iconsPackPackageName + "_" + key.hashCode() + ".png");
-    }
-
-    private File getIconsCacheDir() {
-        File dir = new File(this.ctx.getCacheDir(), "icons");
-        if (!dir.exists() && !dir.mkdir())
-            throw new IllegalStateException("failed to create path " + dir.getPath());
-        return dir;
+    static int getIconsCacheTileSize(@NonNull Context ctx) {
+        return Math.max(ctx.getResources().getDimensionPixelSize(R.dimen.result_icon_size_largest),
+                ctx.getResources().getDimensionPixelSize(R.dimen.large_favorite_height));
     }
 
     @Deprecated
@@ -469,42 +566,38 @@ public class IconsHandler {
     }
 
     /**
-     * Clear cache
+     * Clear cache.
+     * Icons on disk are kept, their keys contain everything they depend on.
      */
     private void cacheClear() {
         synchronized (this) {
             TagDummyResult.resetShape();
             customIconIds = null;
             customComponents = null;
-
-            File cacheDir = this.getIconsCacheDir();
-
-            File[] fileList = cacheDir.listFiles();
-            if (fileList != null) {
-                for (File item : fileList) {
-                    if (!item.delete()) {
-                        Log.w(TAG, "Failed to delete file: " + item.getAbsolutePath());
-                    }
-                }
-            }
+            memoryCache.newGeneration();
+            generatedCache.newGeneration();
         }
     }
 
-    // Before we fixed the cache path actually returning a folder, a lot of icons got dumped
-    // directly in ctx.getCacheDir() so we need to clean it
-    private void clearOldCache() {
-        File newCacheDir = new File(this.ctx.getCacheDir(), "icons");
+    /**
+     * Icons used to be cached as one PNG file per icon in {cacheDir}/icons,
+     * these files are replaced by {@link PackedIconCache} and can be removed.
+     */
+    private void clearPngCache() {
+        File oldCacheDir = new File(this.ctx.getCacheDir(), "icons");
 
-        if (!newCacheDir.isDirectory()) {
-            File[] fileList = ctx.getCacheDir().listFiles();
+        if (oldCacheDir.isDirectory()) {
+            File[] fileList = oldCacheDir.listFiles();
+            int count = 0;
             if (fileList != null) {
-                int count = 0;
                 for (File file : fileList) {
-                    if (file.isFile())
-                        count += file.delete() ? 1 : 0;
+                    count += file.delete() ? 1 : 0;
                 }
-                Log.i(TAG, "Removed " + count + " cache file(s) from the old path");
             }
+            if (!oldCacheDir.delete()) {
+                Log.w(TAG, "Failed to delete old cache directory: " + oldCacheDir.getAbsolutePath());
+            }
+            Log.i(TAG, "Removed " + count + " cache file(s) from the old path");
         }
     }
 
@@ -622,6 +715,13 @@ public class IconsHandler {
             return icon;
         } else if (makeThemedIcon ||
                 (DrawableUtils.hasThemedIcons() && DrawableUtils.isThemedIconEnabled(ctx))) {
+            final String cacheKey = "themed/" + resId + "/" + textColor + "/" + backgroundColor + "/" + getShapeForGeneratingDrawable();
+            final int generation = generatedCache.getGeneration();
+            Bitmap cacheIcon = generatedCache.get(generation, cacheKey);
+            if (cacheIcon != null) {
+                return new BitmapDrawable(ctx.getResources(), cacheIcon);
+            }
+
             Drawable background = getBackgroundDrawable(backgroundColor);
             int insetX = (int) (background.getIntrinsicWidth() * 0.15);
             int insetY = (int) (background.getIntrinsicHeight() * 0.15);
@@ -631,7 +731,7 @@ public class IconsHandler {
             LayerDrawable combined = new LayerDrawable(new Drawable[]{background, icon});
             combined.setLayerInset(1, insetX, insetY, insetX, insetY);
 
-            return combined;
+            return cacheGeneratedDrawable(generation, cacheKey, combined);
         } else {
             icon.setTint(themeFillColor);
             return icon;
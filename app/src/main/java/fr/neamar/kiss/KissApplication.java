@@ -5,10 +5,19 @@ import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 
+import java.io.File;
+
+import fr.neamar.kiss.dataprovider.ProviderRegistry;
 import fr.neamar.kiss.db.DBHelper;
 import fr.neamar.kiss.forwarder.InterfaceTweaks;
+import fr.neamar.kiss.notification.NotificationStore;
+import fr.neamar.kiss.utils.BitmapPool;
+import fr.neamar.kiss.utils.ContactPhotoLoader;
+import fr.neamar.kiss.utils.IconMemoryCache;
 import fr.neamar.kiss.utils.IconPackCache;
 import fr.neamar.kiss.utils.Log;
+import fr.neamar.kiss.utils.PackedIconCache;
+import fr.neamar.kiss.utils.Utilities;
 
 public class KissApplication extends Application {
 
@@ -19,10 +28,23 @@ public class KissApplication extends Application {
      * Setting this value to 0 removes all animations
      */
     public static final int TOUCH_DELAY = 120;
+    /**
+     * Limits for icons cached on disk
+     */
+    private static final long ICONS_CACHE_MAX_SIZE = 64 * 1024 * 1024;
+    private static final long ICONS_CACHE_MAX_AGE = 30 * 24 * 60 * 60 * 1000L;
+    private static final long CONTACT_PHOTOS_CACHE_MAX_SIZE = 16 * 1024 * 1024;
     private volatile DataHandler dataHandler;
     private volatile RootHandler rootHandler;
     private volatile IconsHandler iconsPackHandler;
+    private volatile ProviderRegistry providerRegistry;
+    private volatile PackedIconCache packedIconCache;
+    private volatile ContactPhotoLoader contactPhotoLoader;
+    private volatile NotificationStore notificationStore;
     private final IconPackCache mIconPackCache = new IconPackCache();
+    private final IconMemoryCache mIconMemoryCache = new IconMemoryCache();
+    // generated icons (letters, themed placeholders), 1/32th of available memory
+    private final IconMemoryCache mGeneratedIconCache = new IconMemoryCache((int) Math.min(Runtime.getRuntime().maxMemory() / 32, Integer.MAX_VALUE));
     private final MimeTypeCache mimeTypeCache = new MimeTypeCache();
 
     public static KissApplication getApplication(Context context) {
@@ -37,6 +59,14 @@ public class KissApplication extends Application {
         return getApplication(ctx).mIconPackCache;
     }
 
+    public static IconMemoryCache iconMemoryCache(Context ctx) {
+        return getApplication(ctx).mIconMemoryCache;
+    }
+
+    public static IconMemoryCache generatedIconCache(Context ctx) {
+        return getApplication(ctx).mGeneratedIconCache;
+    }
+
     public DataHandler getDataHandler() {
         if (dataHandler == null) {
             synchronized (this) {
@@ -82,10 +112,81 @@ public class KissApplication extends Application {
         return iconsPackHandler;
     }
 
+    /**
+     * @return registry for providers which run in-process instead of as bound services
+     */
+    public ProviderRegistry getProviderRegistry() {
+        if (providerRegistry == null) {
+            synchronized (this) {
+                if (providerRegistry == null) {
+                    providerRegistry = new ProviderRegistry(this);
+                }
+            }
+        }
+        return providerRegistry;
+    }
+
+    /**
+     * @return disk cache for icons, shared by all {@link IconsHandler}
+     */
+    public PackedIconCache getPackedIconCache() {
+        if (packedIconCache == null) {
+            synchronized (this) {
+                if (packedIconCache == null) {
+                    packedIconCache = new PackedIconCache(new File(getCacheDir(), "icon_cache"), IconsHandler.getIconsCacheTileSize(this));
+                }
+            }
+        }
+        return packedIconCache;
+    }
+
+    /**
+     * @return loader for contact photos, decoded photos are cached in memory and on disk
+     */
+    public ContactPhotoLoader getContactPhotoLoader() {
+        if (contactPhotoLoader == null) {
+            synchronized (this) {
+                if (contactPhotoLoader == null) {
+                    int size = IconsHandler.getIconsCacheTileSize(this);
+                    IconMemoryCache memoryCache = new IconMemoryCache((int) Math.min(Runtime.getRuntime().maxMemory() / 32, Integer.MAX_VALUE));
+                    PackedIconCache diskCache = new PackedIconCache(new File(getCacheDir(), "contact_photos"), size);
+                    contactPhotoLoader = new ContactPhotoLoader(memoryCache, diskCache, size);
+                }
+            }
+        }
+        return contactPhotoLoader;
+    }
+
+    /**
+     * @return notifications of all packages, updated by {@link fr.neamar.kiss.notification.NotificationListener}
+     */
+    public NotificationStore getNotificationStore() {
+        if (notificationStore == null) {
+            synchronized (this) {
+                if (notificationStore == null) {
+                    notificationStore = new NotificationStore(this);
+                }
+            }
+        }
+        return notificationStore;
+    }
+
     public void resetIconsHandler() {
         iconsPackHandler = new IconsHandler(this);
     }
 
+    /**
+     * Invalidate icons of given packages, icons handler is only recreated if the current icon pack changed.
+     *
+     * @param packageNames installed, updated or removed packages
+     */
+    public void onPackagesChanged(String[] packageNames) {
+        IconsHandler handler = iconsPackHandler;
+        if (handler != null && !handler.onPackagesChanged(packageNames)) {
+            resetIconsHandler();
+        }
+    }
+
     public static MimeTypeCache getMimeTypeCache(Context ctx) {
         return getApplication(ctx).mimeTypeCache;
     }
@@ -99,11 +200,30 @@ public class KissApplication extends Application {
     public void onTrimMemory(int level) {
         super.onTrimMemory(level);
 
+        mIconMemoryCache.trimMemory(level);
+        mGeneratedIconCache.trimMemory(level);
+        ContactPhotoLoader photoLoader = contactPhotoLoader;
+        if (photoLoader != null) {
+            photoLoader.trimMemory(level);
+        }
+        BitmapPool.getInstance().trimMemory(level);
         if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
             // this is called every time the screen is off
             SQLiteDatabase.releaseMemory();
             mIconPackCache.clearCache(this);
             mimeTypeCache.clearCache();
+            PackedIconCache iconCache = packedIconCache;
+            if (iconCache != null || photoLoader != null) {
+                Utilities.runAsync((task) -> {
+                    if (iconCache != null) {
+                        iconCache.collectGarbage(ICONS_CACHE_MAX_SIZE, ICONS_CACHE_MAX_AGE);
+                    }
+                    if (photoLoader != null) {
+                        photoLoader.collectGarbage(CONTACT_PHOTOS_CACHE_MAX_SIZE, ICONS_CACHE_MAX_AGE);
+                    }
+                    return null;
+                }, null);
+            }
         }
     }
 
@@ -55,6 +55,7 @@ import fr.neamar.kiss.adapter.RecordAdapter;
 import fr.neamar.kiss.broadcast.IncomingCallHandler;
 import fr.neamar.kiss.dataprovider.simpleprovider.SearchProvider;
 import fr.neamar.kiss.forwarder.ForwarderManager;
+import fr.neamar.kiss.loader.LoadScheduler;
 import fr.neamar.kiss.pojo.SearchPojo;
 import fr.neamar.kiss.result.Result;
 import fr.neamar.kiss.searcher.QueryInterface;
@@ -64,6 +65,7 @@ import fr.neamar.kiss.ui.AnimatedListView;
 import fr.neamar.kiss.ui.KeyboardScrollHider;
 import fr.neamar.kiss.ui.ListPopup;
 import fr.neamar.kiss.ui.SearchEditText;
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
 import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.PackageManagerUtils;
 import fr.neamar.kiss.utils.Permission;
@@ -210,9 +212,13 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
                         updateSearchRecords();
                     }
                 } else if (LOAD_OVER.equalsIgnoreCase(intent.getAction())) {
+                    // reloaded provider replaced its pojos, pooled results are outdated
+                    adapter.clearResultPool();
                     updateSearchRecords();
-                    if (!KissApplication.getApplication(context).getDataHandler().isAllProvidersLoaded()) {
-                        displayLoader(true);
+                    DataHandler dataHandler = KissApplication.getApplication(context).getDataHandler();
+                    if (!dataHandler.isAllProvidersLoaded()) {
+                        // apps can already be shown while other providers are still loading
+                        displayLoader(!dataHandler.isStageLoaded(LoadScheduler.Stage.APPS));
                     } else {
                         Log.v(TAG, "All providers are done loading.");
 
@@ -278,6 +284,7 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
         // Create adapter for records
         this.adapter = new RecordAdapter(this, new ArrayList<>());
         this.list.setAdapter(this.adapter);
+        this.list.setOnScrollListener(this.adapter.getIconPrefetcher());
 
         this.list.setOnItemClickListener((parent, v, position, id) -> adapter.onClick(position, v));
         this.list.setOnItemLongClickListener((parent, v, pos, id) -> {
@@ -317,6 +324,7 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
 
         // Listen to changes
         searchEditText.addTextChangedListener(new TrimmingTextChangedListener(true, (changedText) -> {
+            FrameMetricsRecorder.getInstance().mark(FrameMetricsRecorder.Phase.KEYSTROKE);
             if (isViewingAllApps()) {
                 displayKissBar(false, false);
             }
@@ -412,6 +420,12 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
         forwarderManager.onStart();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        forwarderManager.onStop();
+    }
+
     /**
      * Restart if required,
      * Hide the kissbar by default
@@ -429,9 +443,12 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
 
         dismissPopup();
 
-        if (KissApplication.getApplication(this).getDataHandler().isAllProvidersLoaded()) {
+        DataHandler dataHandler = KissApplication.getApplication(this).getDataHandler();
+        if (dataHandler.isAllProvidersLoaded()) {
             displayLoader(false);
             onFavoriteChange();
+        } else if (dataHandler.isStageLoaded(LoadScheduler.Stage.APPS)) {
+            displayLoader(false);
         }
 
         // We need to update the history in case an external event created new items
@@ -444,6 +461,10 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
 
         forwarderManager.onResume();
 
+        if (prefs.getBoolean("frame-metrics", false)) {
+            FrameMetricsRecorder.getInstance().attach(getWindow());
+        }
+
         // Pasting shared text via intent-filter into kiss search bar
         Intent receivedIntent = getIntent();
         String receivedIntentAction = receivedIntent.getAction();
@@ -467,6 +488,7 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
     protected void onPause() {
         super.onPause();
         forwarderManager.onPause();
+        FrameMetricsRecorder.getInstance().detach(getWindow());
     }
 
     @Override
@@ -1041,6 +1063,7 @@ public class MainActivity extends AppCompatActivity implements QueryInterface, K
     public void onConfigurationChanged(@NonNull Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
         forwarderManager.onConfigurationChanged(newConfig);
+        adapter.clearResultPool();
         recreate();
         Log.d(TAG, "onConfigurationChanged, uiMode = " + (newConfig.uiMode & UI_MODE_NIGHT_MASK));
     }
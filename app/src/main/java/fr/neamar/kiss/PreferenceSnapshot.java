@@ -0,0 +1,156 @@
+package fr.neamar.kiss;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import fr.neamar.kiss.db.HistoryMode;
+import fr.neamar.kiss.pojo.AppPojo;
+import fr.neamar.kiss.utils.UserHandle;
+
+/**
+ * Immutable copy of settings that are read while searching or loading.
+ * <p/>
+ * A new snapshot is created by {@link DataHandler} whenever one of these settings changes, so
+ * searchers and providers can read them from any thread without copying sets every time.
+ */
+public final class PreferenceSnapshot {
+    /**
+     * Keys of all settings in snapshot, changes of other settings don't need a new snapshot
+     */
+    static final Set<String> KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "excluded-apps",
+            "excluded-apps-from-history",
+            DataHandler.PREF_KEY_EXCLUDED_SHORTCUT_APPS,
+            "enable-excluded-apps",
+            "exclude-favorites-apps",
+            "exclude-favorites-history",
+            "freeze-history",
+            "history-mode",
+            "use-fuzzy-score-v1"
+    )));
+
+    private final Set<String> excluded;
+    private final Set<String> excludedFromHistory;
+    private final Set<String> excludedFromHistoryPackages;
+    private final Set<String> excludedShortcutApps;
+    private final boolean excludedAppsEnabled;
+    private final boolean excludeFavoritesApps;
+    private final boolean excludeFavoritesHistory;
+    private final boolean historyFrozen;
+    private final HistoryMode historyMode;
+    private final boolean fuzzyScoreV1;
+
+    PreferenceSnapshot(@NonNull Context context, @NonNull SharedPreferences prefs) {
+        Set<String> excludedPref = prefs.getStringSet("excluded-apps", null);
+        if (excludedPref != null) {
+            excluded = Collections.unmodifiableSet(new HashSet<>(excludedPref));
+        } else {
+            excluded = Collections.singleton(AppPojo.getComponentName(context.getPackageName(), MainActivity.class.getName(), UserHandle.OWNER));
+        }
+
+        Set<String> excludedFromHistoryPref = prefs.getStringSet("excluded-apps-from-history", null);
+        if (excludedFromHistoryPref != null) {
+            excludedFromHistory = Collections.unmodifiableSet(new HashSet<>(excludedFromHistoryPref));
+        } else {
+            excludedFromHistory = Collections.singleton("app://" + AppPojo.getComponentName(context.getPackageName(), MainActivity.class.getName(), UserHandle.OWNER));
+        }
+        excludedFromHistoryPackages = Collections.unmodifiableSet(getPackageNames(excludedFromHistory));
+
+        Set<String> excludedShortcutAppsPref = prefs.getStringSet(DataHandler.PREF_KEY_EXCLUDED_SHORTCUT_APPS, null);
+        if (excludedShortcutAppsPref != null) {
+            excludedShortcutApps = Collections.unmodifiableSet(new HashSet<>(excludedShortcutAppsPref));
+        } else {
+            excludedShortcutApps = Collections.emptySet();
+        }
+
+        excludedAppsEnabled = prefs.getBoolean("enable-excluded-apps", false);
+        excludeFavoritesApps = prefs.getBoolean("exclude-favorites-apps", false);
+        excludeFavoritesHistory = prefs.getBoolean("exclude-favorites-history", false);
+        historyFrozen = prefs.getBoolean("freeze-history", false);
+        historyMode = HistoryMode.valueById(prefs.getString("history-mode", "recency"));
+        fuzzyScoreV1 = prefs.getBoolean("use-fuzzy-score-v1", false);
+    }
+
+    /**
+     * @return unmodifiable set of component names of excluded apps
+     */
+    @NonNull
+    public Set<String> getExcluded() {
+        return excluded;
+    }
+
+    /**
+     * @return unmodifiable set of ids excluded from history
+     */
+    @NonNull
+    public Set<String> getExcludedFromHistory() {
+        return excludedFromHistory;
+    }
+
+    /**
+     * @return unmodifiable set of package names of apps excluded from history
+     */
+    @NonNull
+    public Set<String> getExcludedFromHistoryPackages() {
+        return excludedFromHistoryPackages;
+    }
+
+    /**
+     * @return unmodifiable set of package names of apps whose shortcuts are excluded
+     */
+    @NonNull
+    public Set<String> getExcludedShortcutApps() {
+        return excludedShortcutApps;
+    }
+
+    /**
+     * @return true if excluded apps should be shown in search results anyway
+     */
+    public boolean isExcludedAppsEnabled() {
+        return excludedAppsEnabled;
+    }
+
+    public boolean isExcludeFavoritesApps() {
+        return excludeFavoritesApps;
+    }
+
+    public boolean isExcludeFavoritesHistory() {
+        return excludeFavoritesHistory;
+    }
+
+    public boolean isHistoryFrozen() {
+        return historyFrozen;
+    }
+
+    @NonNull
+    public HistoryMode getHistoryMode() {
+        return historyMode;
+    }
+
+    public boolean isFuzzyScoreV1() {
+        return fuzzyScoreV1;
+    }
+
+    /**
+     * @param ids ids of any items, e.g. "app://package/activity"
+     * @return package names of all app ids
+     */
+    @NonNull
+    private static Set<String> getPackageNames(@NonNull Set<String> ids) {
+        Set<String> packageNames = new HashSet<>();
+        for (String id : ids) {
+            if (id.startsWith("app://")) {
+                int end = id.indexOf('/', "app://".length());
+                packageNames.add(end < 0 ? id.substring("app://".length()) : id.substring("app://".length(), end));
+            }
+        }
+        return packageNames;
+    }
+}
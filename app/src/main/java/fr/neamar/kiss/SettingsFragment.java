@@ -43,7 +43,9 @@ import fr.neamar.kiss.preference.ImportSettingsPreference;
 import fr.neamar.kiss.preference.LaunchPojoSelectPreference;
 import fr.neamar.kiss.preference.SelectCustomSearchProvidersPreference;
 import fr.neamar.kiss.searcher.QuerySearcher;
+import fr.neamar.kiss.utils.ClipboardUtils;
 import fr.neamar.kiss.utils.DrawableUtils;
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
 import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.Permission;
 import fr.neamar.kiss.utils.ShortcutUtil;
@@ -107,6 +109,7 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
         updateItemsToRun();
         fixSummaries();
         updateNightMode();
+        initFrameMetricsReport();
 
         permissionManager = new Permission(getActivity());
     }
@@ -185,6 +188,7 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
                 }
             } else if (key.equalsIgnoreCase("primary-color")) {
                 UIColors.clearColorCache();
+                KissApplication.getApplication(requireContext()).getIconsHandler().clearGeneratedDrawables();
             } else if (key.equalsIgnoreCase("number-of-display-elements")) {
                 QuerySearcher.clearMaxResultCountCache();
             } else if (key.equalsIgnoreCase("default-search-provider")) {
@@ -280,6 +284,18 @@ public class SettingsFragment extends PreferenceFragmentCompat implements Shared
         }
     }
 
+    private void initFrameMetricsReport() {
+        Preference frameMetricsReport = findPreference("frame-metrics-report");
+        if (frameMetricsReport != null) {
+            frameMetricsReport.setOnPreferenceClickListener(preference -> {
+                ClipboardUtils.setClipboard(requireContext(), FrameMetricsRecorder.getInstance().getReport());
+                FrameMetricsRecorder.getInstance().clear();
+                Toast.makeText(getContext(), R.string.frame_metrics_report_done, Toast.LENGTH_SHORT).show();
+                return true;
+            });
+        }
+    }
+
     private void updateNightMode() {
         boolean isAmoledTheme = "amoled-dark".equals(prefs.getString("theme", "transparent"));
 
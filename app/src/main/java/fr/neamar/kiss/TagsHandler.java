@@ -15,7 +15,7 @@ import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -26,13 +26,22 @@ import fr.neamar.kiss.db.DBHelper;
 import fr.neamar.kiss.utils.UserHandle;
 
 public class TagsHandler {
+    private static final String[] NO_TAGS = new String[0];
+
     private final Context context;
     // cached tags
     private final Map<String, String> tagsCache;
+    // split tags of each id, to update the index without looking at the cached strings again
+    private final Map<String, String[]> tagsById = new HashMap<>();
+    // inverted index, ids of each tag
+    private final Map<String, Set<String>> idsByTag = new HashMap<>();
 
     TagsHandler(Context context) {
         this.context = context;
         tagsCache = DBHelper.loadTags(this.context);
+        for (Map.Entry<String, String> entry : tagsCache.entrySet()) {
+            indexTags(entry.getKey(), entry.getValue());
+        }
         addDefaultAliases();
     }
 
@@ -48,10 +57,10 @@ public class TagsHandler {
         // add to db
         DBHelper.insertTagsForId(this.context, tags, id);
         // add to cache
-        tagsCache.put(id, tags);
+        putTags(id, tags);
     }
 
-    public String getTags(String id) {
+    public synchronized String getTags(String id) {
         String tag = tagsCache.get(id);
         if (tag == null) {
             return "";
@@ -64,14 +73,21 @@ public class TagsHandler {
         return tags.toArray(new String[0]);
     }
 
-    public Set<String> getAllTagsAsSet() {
-        Set<String> tags = new HashSet<>();
-        for (String value : tagsCache.values()) {
-            if (!TextUtils.isEmpty(value)) {
-                tags.addAll(Arrays.asList(value.split("\\s+")));
-            }
+    public synchronized Set<String> getAllTagsAsSet() {
+        return new HashSet<>(idsByTag.keySet());
+    }
+
+    /**
+     * @param tag tag to look for
+     * @return ids of all records with given tag, empty if there are none
+     */
+    @NonNull
+    public synchronized Set<String> getIdsForTag(String tag) {
+        Set<String> ids = idsByTag.get(tag);
+        if (ids == null) {
+            return new HashSet<>();
         }
-        return tags;
+        return new HashSet<>(ids);
     }
 
     /**
@@ -85,16 +101,22 @@ public class TagsHandler {
         if (!dataHandler.isAllProvidersLoaded()) {
             return getAllTagsAsSet();
         }
-        Set<String> tags = new HashSet<>();
-        for (Map.Entry<String, String> entry : tagsCache.entrySet()) {
-            String value = entry.getValue();
-            if (TextUtils.isEmpty(value)) {
-                continue;
+        // copy ids, so providers aren't queried while holding the lock
+        Map<String, List<String>> idsByTagCopy = new HashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, Set<String>> entry : idsByTag.entrySet()) {
+                idsByTagCopy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
             }
-            if (dataHandler.getPojo(entry.getKey()) == null) {
-                continue;
+        }
+        Set<String> tags = new HashSet<>();
+        for (Map.Entry<String, List<String>> entry : idsByTagCopy.entrySet()) {
+            // one live record is enough to keep the tag
+            for (String id : entry.getValue()) {
+                if (dataHandler.getPojo(id) != null) {
+                    tags.add(entry.getKey());
+                    break;
+                }
             }
-            tags.addAll(Arrays.asList(value.split("\\s+")));
         }
         return tags;
     }
@@ -103,11 +125,48 @@ public class TagsHandler {
         return tagsCache;
     }
 
-    public void clearTags() {
+    public synchronized void clearTags() {
         tagsCache.clear();
+        tagsById.clear();
+        idsByTag.clear();
         DBHelper.deleteTags(this.context);
     }
 
+    private synchronized void putTags(String id, String tags) {
+        tagsCache.put(id, tags);
+        indexTags(id, tags);
+    }
+
+    private void indexTags(String id, String tags) {
+        // remove id from previous tags
+        String[] previousTags = tagsById.remove(id);
+        if (previousTags != null) {
+            for (String tag : previousTags) {
+                Set<String> ids = idsByTag.get(tag);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        idsByTag.remove(tag);
+                    }
+                }
+            }
+        }
+
+        String[] newTags = TextUtils.isEmpty(tags) ? NO_TAGS : tags.split("\\s+");
+        if (newTags.length == 0) {
+            return;
+        }
+        tagsById.put(id, newTags);
+        for (String tag : newTags) {
+            Set<String> ids = idsByTag.get(tag);
+            if (ids == null) {
+                ids = new HashSet<>();
+                idsByTag.put(tag, ids);
+            }
+            ids.add(id);
+        }
+    }
+
     private void addDefaultAliases() {
         final PackageManager pm = context.getPackageManager();
 
@@ -149,7 +208,7 @@ public class TagsHandler {
     private void addDefaultAlias(String aliases, String app) {
         // add aliases only if they haven't overridden by the user (not in db)
         if (!tagsCache.containsKey(app)) {
-            tagsCache.put(app, aliases.replace(",", " ").trim().toLowerCase(Locale.getDefault()));
+            putTags(app, aliases.replace(",", " ").trim().toLowerCase(Locale.getDefault()));
         }
     }
 
@@ -0,0 +1,111 @@
+package fr.neamar.kiss.adapter;
+
+import android.content.Context;
+import android.widget.AbsListView;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import fr.neamar.kiss.KissApplication;
+import fr.neamar.kiss.result.Result;
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
+import fr.neamar.kiss.utils.IconLoader;
+import fr.neamar.kiss.utils.IconMemoryCache;
+
+/**
+ * Loads icons of results before they are displayed.
+ * <p/>
+ * While scrolling, icons of the next rows in scroll direction are loaded. When results change,
+ * icons of the most relevant results (at the bottom of the list) are loaded.
+ * Icons are loaded by {@link IconLoader} with lowest priority, after icons of visible rows.
+ * Prefetched icons may use at most a quarter of the {@link IconMemoryCache}, so prefetching never
+ * evicts icons that are displayed. A running prefetch is cancelled as soon as a new one is started.
+ */
+public class IconPrefetcher implements AbsListView.OnScrollListener {
+    /**
+     * Number of rows to prefetch ahead of the visible ones
+     */
+    private static final int PREFETCH_COUNT = 12;
+
+    private final RecordAdapter adapter;
+    private int lastFirstVisibleItem = -1;
+    // position from where last prefetch was started, and its direction
+    private int prefetchStart = -1;
+    private int prefetchDirection = 0;
+    private final List<IconLoader.Request> requests = new ArrayList<>();
+
+    IconPrefetcher(@NonNull RecordAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void onScrollStateChanged(AbsListView view, int scrollState) {
+        // onScroll is also called on every layout, only scroll state tells if list is really scrolled (or flung)
+        if (scrollState != SCROLL_STATE_IDLE) {
+            FrameMetricsRecorder.getInstance().mark(FrameMetricsRecorder.Phase.SCROLL);
+        }
+    }
+
+    @Override
+    public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        if (lastFirstVisibleItem < 0 || firstVisibleItem == lastFirstVisibleItem || visibleItemCount == 0) {
+            lastFirstVisibleItem = firstVisibleItem;
+            return;
+        }
+        int direction = firstVisibleItem < lastFirstVisibleItem ? -1 : 1;
+        lastFirstVisibleItem = firstVisibleItem;
+
+        int start = direction < 0 ? firstVisibleItem - 1 : firstVisibleItem + visibleItemCount;
+        // don't restart prefetch for every row, only if half of prefetched rows are visible already
+        if (direction == prefetchDirection && Math.abs(start - prefetchStart) < PREFETCH_COUNT / 2) {
+            return;
+        }
+        prefetch(view.getContext(), start, direction);
+    }
+
+    /**
+     * Results of adapter changed, prefetch icons of most relevant results.
+     */
+    void onResultsChanged(@NonNull Context context) {
+        lastFirstVisibleItem = -1;
+        prefetch(context, adapter.getCount() - 1, -1);
+    }
+
+    /**
+     * Stop running prefetch
+     */
+    public void cancel() {
+        for (IconLoader.Request request : requests) {
+            request.cancel();
+        }
+        requests.clear();
+        prefetchDirection = 0;
+    }
+
+    private void prefetch(@NonNull Context context, int start, int direction) {
+        cancel();
+
+        prefetchStart = start;
+        prefetchDirection = direction;
+        int count = Math.min(PREFETCH_COUNT, getIconBudget(context));
+        for (int i = 0, position = start; i < count && position >= 0 && position < adapter.getCount(); i++, position += direction) {
+            Result<?> result = adapter.getItem(position);
+            IconLoader.Request request = result.prefetchDrawable(context);
+            if (request != null) {
+                requests.add(request);
+            }
+        }
+    }
+
+    /**
+     * @return number of icons that may be prefetched into memory cache
+     */
+    private static int getIconBudget(@NonNull Context context) {
+        IconMemoryCache memoryCache = KissApplication.iconMemoryCache(context);
+        int tileSize = KissApplication.getApplication(context).getPackedIconCache().getTileSize();
+        int bytesPerIcon = Math.max(tileSize * tileSize * 4, 1);
+        return memoryCache.maxSize() / 4 / bytesPerIcon;
+    }
+}
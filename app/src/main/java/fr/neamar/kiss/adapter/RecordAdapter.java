@@ -7,6 +7,7 @@ import android.widget.BaseAdapter;
 import android.widget.SectionIndexer;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 
 import java.util.ArrayList;
@@ -15,21 +16,29 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
+import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
+import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.normalizer.StringNormalizer;
 import fr.neamar.kiss.pojo.Pojo;
 import fr.neamar.kiss.result.Result;
 import fr.neamar.kiss.searcher.QueryInterface;
 import fr.neamar.kiss.ui.ListPopup;
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
 import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.fuzzy.FuzzyFactory;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class RecordAdapter extends BaseAdapter implements SectionIndexer {
     private final QueryInterface parent;
-    private FuzzyScore fuzzyScore;
+    private final IconPrefetcher iconPrefetcher;
+    private final ResultPool resultPool = new ResultPool();
+    private MatchHighlighter highlighter;
+    /**
+     * Result each row view displays, so views showing the same result again only need new highlights
+     */
+    private final Map<View, Result<?>> boundResults = new WeakHashMap<>();
 
     /**
      * Array list containing all the results currently displayed
@@ -45,7 +54,15 @@ public class RecordAdapter extends BaseAdapter implements SectionIndexer {
     public RecordAdapter(QueryInterface parent, List<Result<?>> results) {
         this.parent = parent;
         this.results = results;
-        this.fuzzyScore = null;
+        this.highlighter = null;
+        this.iconPrefetcher = new IconPrefetcher(this);
+    }
+
+    /**
+     * @return prefetcher, which needs to be registered as scroll listener of the list
+     */
+    public IconPrefetcher getIconPrefetcher() {
+        return iconPrefetcher;
     }
 
     @Override
@@ -83,7 +100,15 @@ public class RecordAdapter extends BaseAdapter implements SectionIndexer {
     @Override
     @NonNull
     public View getView(int position, View convertView, @NonNull ViewGroup parent) {
-        return getItem(position).display(parent.getContext(), convertView, parent, fuzzyScore);
+        Result<?> result = getItem(position);
+        if (convertView != null && boundResults.get(convertView) == result
+                && result.rebind(parent.getContext(), convertView, highlighter)) {
+            // row survived a change of the query, keep icons and everything else
+            return convertView;
+        }
+        View view = result.display(parent.getContext(), convertView, parent, highlighter);
+        boundResults.put(view, result);
+        return view;
     }
 
     public void onLongClick(final int pos, View v) {
@@ -108,32 +133,40 @@ public class RecordAdapter extends BaseAdapter implements SectionIndexer {
     public void removeResult(Result<?> result) {
         parent.beforeListChange();
         results.remove(result);
+        resultPool.remove(result.getPojo());
         notifyDataSetChanged();
         // Do not reset scroll, we want the remaining items to still be in view
         parent.temporarilyDisableTranscriptMode();
         parent.afterListChange();
     }
 
-    public void updateWithPojos(@NonNull Context context, @NonNull List<Pojo> pojos, boolean isRefresh, String query) {
-        Map<Pojo, Result<?>> existingResults = this.results.stream()
-                .collect(Collectors.toMap(Result::getPojo, Function.identity()));
+    /**
+     * @param highlighter highlight ranges prepared by searcher, null to compute them when results are displayed
+     */
+    public void updateWithPojos(@NonNull Context context, @NonNull List<Pojo> pojos, boolean isRefresh, String query, @Nullable MatchHighlighter highlighter) {
+        // pooled results keep their icons, these need to be loaded again if icon pack or shape changed
+        resultPool.updateIconsGeneration(KissApplication.getApplication(context).getIconsHandler().getIconsGeneration());
         List<Result<?>> updatedResults = pojos.stream()
                 .filter(Objects::nonNull)
-                .map(pojo -> existingResults.getOrDefault(pojo, Result.fromPojo(parent, pojo)))
+                .map(pojo -> resultPool.obtain(parent, pojo))
                 .collect(Collectors.toList());
 
-        updateResults(context, updatedResults, isRefresh, query);
+        updateResults(context, updatedResults, isRefresh, query, highlighter);
     }
 
-    public void updateResults(@NonNull Context context, List<Result<?>> updatedResults, boolean isRefresh, String query) {
+    public void updateResults(@NonNull Context context, List<Result<?>> updatedResults, boolean isRefresh, String query, @Nullable MatchHighlighter highlighter) {
         parent.beforeListChange();
+        FrameMetricsRecorder.getInstance().mark(FrameMetricsRecorder.Phase.RESULT_BIND);
 
         this.results.clear();
         this.results.addAll(updatedResults);
-        StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
-
-        fuzzyScore = FuzzyFactory.createFuzzyScore(context, queryNormalized.codePoints, true);
+        if (highlighter == null) {
+            StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
+            highlighter = new MatchHighlighter(FuzzyFactory.createFuzzyScore(context, queryNormalized.codePoints, true));
+        }
+        this.highlighter = highlighter;
         notifyDataSetChanged();
+        iconPrefetcher.onResultsChanged(context);
 
         if (isRefresh) {
             // We're refreshing an existing dataset, do not reset scroll!
@@ -152,8 +185,18 @@ public class RecordAdapter extends BaseAdapter implements SectionIndexer {
     }
 
 
+    /**
+     * Drop pooled results, so results are created again for the next search.
+     * Needs to be called when content of results may have changed, e.g. after providers were reloaded.
+     */
+    public void clearResultPool() {
+        resultPool.clear();
+        boundResults.clear();
+    }
+
     public void clear() {
         parent.beforeListChange();
+        iconPrefetcher.cancel();
         this.results.clear();
         notifyDataSetChanged();
         parent.afterListChange();
@@ -0,0 +1,58 @@
+package fr.neamar.kiss.adapter;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import fr.neamar.kiss.pojo.Pojo;
+import fr.neamar.kiss.result.Result;
+import fr.neamar.kiss.searcher.QueryInterface;
+
+/**
+ * Bounded pool of results, keyed by id of their pojo.
+ * <p/>
+ * Results keep their icon and other cached state, so reusing them for the next search avoids
+ * creating objects and loading icons again for entries that were shown recently.
+ * A pooled result is only reused for the very same pojo instance, so results of reloaded
+ * providers are never shown with stale content. All results are dropped when the generation of
+ * icons changes (e.g. icon pack or shape), as their icons are outdated then.
+ */
+class ResultPool {
+    private static final int MAX_SIZE = 256;
+
+    private final LruCache<String, Result<?>> pool = new LruCache<>(MAX_SIZE);
+    private int iconsGeneration = -1;
+
+    /**
+     * Drop all results if icons changed since last call.
+     *
+     * @param currentIconsGeneration see {@link fr.neamar.kiss.IconsHandler#getIconsGeneration()}
+     */
+    void updateIconsGeneration(int currentIconsGeneration) {
+        if (currentIconsGeneration != iconsGeneration) {
+            iconsGeneration = currentIconsGeneration;
+            pool.evictAll();
+        }
+    }
+
+    /**
+     * @return pooled result for pojo, or a new one which is added to pool
+     */
+    @NonNull
+    Result<?> obtain(@NonNull QueryInterface parent, @NonNull Pojo pojo) {
+        Result<?> result = pool.get(pojo.id);
+        if (result == null || result.getPojo() != pojo) {
+            result = Result.fromPojo(parent, pojo);
+            pool.put(pojo.id, result);
+        }
+        return result;
+    }
+
+    void remove(@NonNull Pojo pojo) {
+        pool.remove(pojo.id);
+    }
+
+    void clear() {
+        pool.evictAll();
+    }
+}
@@ -48,7 +48,7 @@ public class PackageAddedRemovedHandler extends BroadcastReceiver {
 
         if (Intent.ACTION_PACKAGE_REMOVED.equals(action)) {
             if (!replacing) {
-                KissApplication.getApplication(ctx).resetIconsHandler();
+                KissApplication.getApplication(ctx).onPackagesChanged(packageNames);
                 // Reload application list
                 KissApplication.getApplication(ctx).getDataHandler().reloadApps();
                 // Remove all installed shortcuts
@@ -58,7 +58,7 @@ public class PackageAddedRemovedHandler extends BroadcastReceiver {
                 }
             }
         } else {
-            KissApplication.getApplication(ctx).resetIconsHandler();
+            KissApplication.getApplication(ctx).onPackagesChanged(packageNames);
 
             boolean isAnyPackageVisible = isAnyPackageVisible(ctx, packageNames, user);
             if (isAnyPackageVisible) {
@@ -1,17 +1,16 @@
 package fr.neamar.kiss.dataprovider;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.LauncherApps;
 import android.os.Build;
 
 import androidx.core.content.ContextCompat;
-import androidx.preference.PreferenceManager;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import fr.neamar.kiss.DataHandler;
 import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.broadcast.PackageAddedRemovedHandler;
 import fr.neamar.kiss.loader.LoadAppPojos;
@@ -87,6 +86,13 @@ public class AppProvider extends Provider<AppPojo> {
         this.initialize(new LoadAppPojos(this));
     }
 
+    @Override
+    public void loadOver(List<AppPojo> results) {
+        // shortcuts excluded from history depend on apps
+        KissApplication.getApplication(this).getDataHandler().invalidateExcludedFromHistoryIds();
+        super.loadOver(results);
+    }
+
     /**
      * @param query    The string to search for
      * @param searcher The receiver of results
@@ -99,14 +105,16 @@ public class AppProvider extends Provider<AppPojo> {
             return;
         }
 
-        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(this, queryNormalized.codePoints);
+        // detailed match indices are kept for highlighting
+        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(this, queryNormalized.codePoints, true);
 
-        Set<String> excludedFavoriteIds = KissApplication.getApplication(this).getDataHandler().getExcludedFavorites();
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+        DataHandler dataHandler = KissApplication.getApplication(this).getDataHandler();
+        Set<String> excludedFavoriteIds = dataHandler.getExcludedFavorites();
+        boolean showExcludedApps = dataHandler.getPreferences().isExcludedAppsEnabled();
 
         for (AppPojo pojo : getPojos()) {
             // exclude apps from results
-            if (pojo.isExcluded() && !prefs.getBoolean("enable-excluded-apps", false)) {
+            if (pojo.isExcluded() && !showExcludedApps) {
                 continue;
             }
             // exclude favorites from results
@@ -114,17 +122,22 @@ public class AppProvider extends Provider<AppPojo> {
                 continue;
             }
 
-            MatchInfo matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-            boolean match = pojo.updateMatchingRelevance(matchInfo, false);
+            MatchInfo nameMatchInfo = fuzzyScore.match(pojo.normalizedName.codePoints).copy();
+            boolean match = pojo.updateMatchingRelevance(nameMatchInfo, false);
 
             // check relevance for tags
+            MatchInfo tagsMatchInfo = null;
             if (pojo.getNormalizedTags() != null) {
-                matchInfo = fuzzyScore.match(pojo.getNormalizedTags().codePoints);
-                match = pojo.updateMatchingRelevance(matchInfo, match);
+                tagsMatchInfo = fuzzyScore.match(pojo.getNormalizedTags().codePoints).copy();
+                match = pojo.updateMatchingRelevance(tagsMatchInfo, match);
             }
 
-            if (match && !searcher.addResult(pojo)) {
-                return;
+            if (match) {
+                searcher.addMatch(pojo.normalizedName, nameMatchInfo);
+                searcher.addMatch(pojo.getNormalizedTags(), tagsMatchInfo);
+                if (!searcher.addResult(pojo)) {
+                    return;
+                }
             }
         }
     }
@@ -2,13 +2,22 @@ package fr.neamar.kiss.dataprovider;
 
 import android.database.ContentObserver;
 import android.net.Uri;
+import android.os.Looper;
+import android.os.Process;
 import android.provider.ContactsContract;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.preference.PreferenceManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import fr.neamar.kiss.loader.LoadContactsPojos;
 import fr.neamar.kiss.normalizer.PhoneNormalizer;
@@ -24,6 +33,10 @@ import fr.neamar.kiss.utils.fuzzy.MatchInfo;
 
 public class ContactsProvider extends Provider<ContactsPojo> {
     protected static final String TAG = ContactsProvider.class.getSimpleName();
+    /**
+     * Warm up runs on its own thread with lowest priority, so it never delays loaders or other background tasks
+     */
+    private static final ThreadPoolExecutor WARM_UP_EXECUTOR = createWarmUpExecutor();
     private final ContentObserver cObserver = new ContentObserver(null) {
 
         @Override
@@ -49,9 +62,21 @@ public class ContactsProvider extends Provider<ContactsPojo> {
         }
     };
 
+    /**
+     * Compact storage of all contacts, only used if enabled in settings.
+     * If set, no {@link ContactsPojo} are kept by {@link Provider}.
+     */
+    private volatile ContactsStore store = null;
+
+    /**
+     * Contacts whose secondary names are normalized while KISS is idle
+     */
+    private volatile List<ContactsPojo> warmUpContacts = null;
+
     @Override
     public void reload() {
         super.reload();
+        cancelWarmUp();
         this.initialize(new LoadContactsPojos(this));
     }
 
@@ -77,6 +102,93 @@ public class ContactsProvider extends Provider<ContactsPojo> {
         super.onDestroy();
         //deregister content observer
         getContentResolver().unregisterContentObserver(cObserver);
+        cancelWarmUp();
+    }
+
+    @Override
+    public void loadOver(List<ContactsPojo> results) {
+        if (PreferenceManager.getDefaultSharedPreferences(this).getBoolean("contacts-compact-storage", false)) {
+            long start = System.currentTimeMillis();
+            ContactsStore contactsStore = ContactsStore.build(results);
+            Log.i(TAG, (System.currentTimeMillis() - start) + " milliseconds to pack " + contactsStore.size() + " contacts, " + contactsStore.estimateArenaHeapSize() + " bytes for normalized names");
+            this.store = contactsStore;
+            super.loadOver(new ArrayList<>());
+        } else {
+            this.store = null;
+            super.loadOver(results);
+            scheduleWarmUp(results);
+        }
+    }
+
+    /**
+     * Secondary names of contacts are normalized lazily on first search.
+     * If enabled, normalize the remaining ones as soon as the main thread is idle.
+     *
+     * @param contacts all loaded contacts
+     */
+    private void scheduleWarmUp(List<ContactsPojo> contacts) {
+        if (!PreferenceManager.getDefaultSharedPreferences(this).getBoolean("contacts-normalization-warm-up", true)) {
+            return;
+        }
+        warmUpContacts = contacts;
+        Looper.myQueue().addIdleHandler(() -> {
+            // skip if contacts were reloaded in the meantime
+            if (warmUpContacts == contacts) {
+                WARM_UP_EXECUTOR.execute(() -> {
+                    long start = System.currentTimeMillis();
+                    for (ContactsPojo contact : contacts) {
+                        if (warmUpContacts != contacts) {
+                            return;
+                        }
+                        contact.normalizeSecondaryNames();
+                    }
+                    Log.i(TAG, (System.currentTimeMillis() - start) + " milliseconds to normalize secondary names of " + contacts.size() + " contacts");
+                });
+            }
+            return false;
+        });
+    }
+
+    private void cancelWarmUp() {
+        warmUpContacts = null;
+    }
+
+    private static ThreadPoolExecutor createWarmUpExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                    r.run();
+                }, "ContactsWarmUp"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public ContactsPojo findById(String id) {
+        ContactsStore contactsStore = this.store;
+        if (contactsStore != null) {
+            int row = contactsStore.indexOf(id);
+            return row >= 0 ? contactsStore.getPojo(row) : null;
+        }
+        return super.findById(id);
+    }
+
+    /**
+     * Get a list of all pojos.
+     * If contacts are stored in compact form, all of them are materialized, so use with care.
+     * Pojos which are not cached yet are created without caching them, so search results stay cached.
+     */
+    @Override
+    public List<ContactsPojo> getPojos() {
+        ContactsStore contactsStore = this.store;
+        if (contactsStore != null) {
+            List<ContactsPojo> pojos = new ArrayList<>(contactsStore.size());
+            for (int row = 0; row < contactsStore.size(); row++) {
+                pojos.add(contactsStore.peekPojo(row));
+            }
+            return Collections.unmodifiableList(pojos);
+        }
+        return super.getPojos();
     }
 
     @Override
@@ -87,46 +199,57 @@ public class ContactsProvider extends Provider<ContactsPojo> {
             return;
         }
 
-        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(this, queryNormalized.codePoints);
+        // detailed match indices are kept for highlighting
+        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(this, queryNormalized.codePoints, true);
+
+        ContactsStore contactsStore = this.store;
+        if (contactsStore != null) {
+            requestResults(contactsStore, queryNormalized, fuzzyScore, searcher);
+            return;
+        }
 
         for (ContactsPojo pojo : getPojos()) {
             MatchInfo matchInfo;
             boolean match = false;
 
+            MatchInfo nameMatchInfo = null;
             if (pojo.normalizedName != null) {
-                matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-                match = pojo.updateMatchingRelevance(matchInfo, match);
+                nameMatchInfo = fuzzyScore.match(pojo.normalizedName.codePoints).copy();
+                match = pojo.updateMatchingRelevance(nameMatchInfo, match);
             }
 
             // Match also for alternative name, see https://developer.android.com/reference/android/provider/ContactsContract.ContactNameColumns#DISPLAY_NAME_ALTERNATIVE
             // This may result in better match but eventually some missing highlighting
-            if (pojo.normalizedNameAlternative != null) {
-                matchInfo = fuzzyScore.match(pojo.normalizedNameAlternative.codePoints);
+            if (pojo.getNormalizedNameAlternative() != null) {
+                matchInfo = fuzzyScore.match(pojo.getNormalizedNameAlternative().codePoints);
                 match = pojo.updateMatchingRelevance(matchInfo, match);
             }
 
             // Match also for phonetic name
             // This may result in better match but eventually some missing highlighting
-            if (pojo.normalizedPhoneticName != null) {
-                matchInfo = fuzzyScore.match(pojo.normalizedPhoneticName.codePoints);
+            if (pojo.getNormalizedPhoneticName() != null) {
+                matchInfo = fuzzyScore.match(pojo.getNormalizedPhoneticName().codePoints);
                 match = pojo.updateMatchingRelevance(matchInfo, match);
             }
 
-            if (pojo.normalizedNickname != null) {
-                matchInfo = fuzzyScore.match(pojo.normalizedNickname.codePoints);
-                match = pojo.updateMatchingRelevance(matchInfo, match);
+            MatchInfo nicknameMatchInfo = null;
+            if (pojo.getNormalizedNickname() != null) {
+                nicknameMatchInfo = fuzzyScore.match(pojo.getNormalizedNickname().codePoints).copy();
+                match = pojo.updateMatchingRelevance(nicknameMatchInfo, match);
             }
 
+            MatchInfo phoneMatchInfo = null;
             if (!match && queryNormalized.length() > 2 && pojo.normalizedPhone != null) {
                 // search for the phone number
-                matchInfo = fuzzyScore.match(pojo.normalizedPhone.codePoints);
-                match = pojo.updateMatchingRelevance(matchInfo, match);
+                phoneMatchInfo = fuzzyScore.match(pojo.normalizedPhone.codePoints).copy();
+                match = pojo.updateMatchingRelevance(phoneMatchInfo, match);
             }
 
+            MatchInfo identifierMatchInfo = null;
             if (!match && queryNormalized.length() > 2 && pojo.getContactData() != null && pojo.getContactData().getNormalizedIdentifier() != null) {
                 // search for IM identifier
-                matchInfo = fuzzyScore.match(pojo.getContactData().getNormalizedIdentifier().codePoints);
-                match = pojo.updateMatchingRelevance(matchInfo, match);
+                identifierMatchInfo = fuzzyScore.match(pojo.getContactData().getNormalizedIdentifier().codePoints).copy();
+                match = pojo.updateMatchingRelevance(identifierMatchInfo, match);
             }
 
             if (match) {
@@ -134,6 +257,60 @@ public class ContactsProvider extends Provider<ContactsPojo> {
                     pojo.relevance += 40;
                 }
 
+                searcher.addMatch(pojo.normalizedName, nameMatchInfo);
+                searcher.addMatch(pojo.getNormalizedNickname(), nicknameMatchInfo);
+                searcher.addMatch(pojo.normalizedPhone, phoneMatchInfo);
+                if (pojo.getContactData() != null) {
+                    searcher.addMatch(pojo.getContactData().getNormalizedIdentifier(), identifierMatchInfo);
+                }
+                if (!searcher.addResult(pojo))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #requestResults(String, Searcher)} but matches in place against compact storage.
+     * Pojos are only materialized for matching contacts.
+     */
+    private void requestResults(ContactsStore contactsStore, StringNormalizer.Result queryNormalized, FuzzyScore fuzzyScore, Searcher searcher) {
+        MatchInfo[] fieldMatchInfos = new MatchInfo[ContactsStore.FIELD_COUNT];
+        for (int row = 0; row < contactsStore.size(); row++) {
+            int relevance = 0;
+            boolean match = false;
+            Arrays.fill(fieldMatchInfos, null);
+
+            for (int field = ContactsStore.FIELD_NAME; field <= ContactsStore.FIELD_IDENTIFIER; field++) {
+                if (field >= ContactsStore.FIELD_PHONE && (match || queryNormalized.length() <= 2)) {
+                    // search for phone number and IM identifier only if there is no other match
+                    break;
+                }
+                MatchInfo matchInfo = contactsStore.match(row, field, fuzzyScore);
+                if (matchInfo != null) {
+                    if (ContactsStore.isDisplayed(field)) {
+                        fieldMatchInfos[field] = matchInfo.copy();
+                    }
+                    if (matchInfo.match && (!match || matchInfo.score > relevance)) {
+                        relevance = matchInfo.score;
+                        match = true;
+                    }
+                }
+            }
+
+            if (match) {
+                ContactsPojo pojo = contactsStore.getPojo(row);
+                pojo.relevance = relevance;
+                if (pojo.starred) {
+                    pojo.relevance += 40;
+                }
+
+                // only displayed fields are highlighted, others must not be normalized again
+                for (int field = 0; field < ContactsStore.FIELD_COUNT; field++) {
+                    if (fieldMatchInfos[field] != null) {
+                        searcher.addMatch(contactsStore.getNormalized(pojo, row, field), fieldMatchInfos[field]);
+                    }
+                }
+
                 if (!searcher.addResult(pojo))
                     return;
             }
@@ -151,6 +328,21 @@ public class ContactsProvider extends Provider<ContactsPojo> {
         StringNormalizer.Result simplifiedPhoneNumber = PhoneNormalizer.normalizeWithResult(phoneNumber);
 
         PhoneUtils phoneUtils = new PhoneUtils(this);
+        ContactsStore contactsStore = this.store;
+        if (contactsStore != null) {
+            String simplifiedPhoneString = simplifiedPhoneNumber.toString();
+            for (int row = 0; row < contactsStore.size(); row++) {
+                if (contactsStore.hasSamePhone(row, simplifiedPhoneNumber)) {
+                    return contactsStore.getPojo(row);
+                }
+                String normalizedPhone = contactsStore.getNormalizedPhoneString(row);
+                if (normalizedPhone != null && phoneUtils.areSamePhoneNumber(normalizedPhone, simplifiedPhoneString)) {
+                    return contactsStore.getPojo(row);
+                }
+            }
+            return null;
+        }
+
         for (ContactsPojo pojo : getPojos()) {
             if (pojo.normalizedPhone != null && phoneUtils.areSamePhoneNumber(pojo.normalizedPhone, simplifiedPhoneNumber)) {
                 return pojo;
@@ -0,0 +1,342 @@
+package fr.neamar.kiss.dataprovider;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.neamar.kiss.normalizer.CodePointArena;
+import fr.neamar.kiss.normalizer.PhoneNormalizer;
+import fr.neamar.kiss.normalizer.StringNormalizer;
+import fr.neamar.kiss.pojo.ContactData;
+import fr.neamar.kiss.pojo.ContactsPojo;
+import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchInfo;
+
+/**
+ * Compact, column oriented storage for contacts.
+ * <p/>
+ * Instead of keeping one {@link ContactsPojo} (with up to six {@link StringNormalizer.Result})
+ * per contact in memory, every field is stored in its own column. Normalized code points of all
+ * fields are packed into one shared {@link CodePointArena} which is only used for matching,
+ * everything else is normalized again from the original strings when a pojo is materialized.
+ * Repeated strings (lookup keys, mime types, names of contacts with several phone numbers, ...)
+ * are only stored once.
+ * <p/>
+ * {@link ContactsPojo} are only materialized for contacts that are really needed, e.g. search results.
+ * Recently used pojos are cached, so consecutive searches get the same pojo instance for a contact.
+ */
+class ContactsStore {
+    static final int FIELD_NAME = 0;
+    static final int FIELD_NAME_ALTERNATIVE = 1;
+    static final int FIELD_PHONETIC_NAME = 2;
+    static final int FIELD_NICKNAME = 3;
+    static final int FIELD_PHONE = 4;
+    static final int FIELD_IDENTIFIER = 5;
+    static final int FIELD_COUNT = 6;
+
+    private static final byte FLAG_PRIMARY = 1;
+    private static final byte FLAG_STARRED = 1 << 1;
+    private static final byte FLAG_HOME_NUMBER = 1 << 2;
+
+    /**
+     * Number of materialized pojos to keep, should be larger than the number of results of one search
+     */
+    private static final int POJO_CACHE_SIZE = 256;
+
+    private final int size;
+    private final CodePointArena arena;
+
+    private final String[] ids;
+    private final String[] lookupKeys;
+    private final long[] contactIds;
+    private final String[] icons;
+    private final String[] photoKeys;
+    private final byte[] flags;
+    private final String[] names;
+    private final String[] nameAlternatives;
+    private final String[] phoneticNames;
+    private final String[] nicknames;
+    private final String[] phones;
+    private final String[] mimeTypes;
+    private final long[] dataIds;
+    private final String[] identifiers;
+    // handles into arena, FIELD_COUNT entries per contact
+    private final int[] handles;
+    private final Map<String, Integer> rowsById;
+
+    private final Map<Integer, ContactsPojo> pojoCache = new LinkedHashMap<Integer, ContactsPojo>(POJO_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ContactsPojo> eldest) {
+            return size() > POJO_CACHE_SIZE;
+        }
+    };
+
+    private ContactsStore(int size) {
+        this.size = size;
+        this.arena = new CodePointArena(size * 2, size * 24);
+        this.ids = new String[size];
+        this.lookupKeys = new String[size];
+        this.contactIds = new long[size];
+        this.icons = new String[size];
+        this.photoKeys = new String[size];
+        this.flags = new byte[size];
+        this.names = new String[size];
+        this.nameAlternatives = new String[size];
+        this.phoneticNames = new String[size];
+        this.nicknames = new String[size];
+        this.phones = new String[size];
+        this.mimeTypes = new String[size];
+        this.dataIds = new long[size];
+        this.identifiers = new String[size];
+        this.handles = new int[size * FIELD_COUNT];
+        this.rowsById = new HashMap<>(size * 4 / 3 + 1);
+    }
+
+    /**
+     * Pack given contacts, the list may be discarded afterwards.
+     *
+     * @param contacts contacts to store
+     * @return compact store with same content
+     */
+    @NonNull
+    static ContactsStore build(@NonNull List<ContactsPojo> contacts) {
+        ContactsStore store = new ContactsStore(contacts.size());
+        Builder builder = new Builder(store.arena);
+        for (int row = 0; row < store.size; row++) {
+            ContactsPojo pojo = contacts.get(row);
+            store.ids[row] = pojo.id;
+            store.rowsById.put(pojo.id, row);
+            store.lookupKeys[row] = builder.intern(pojo.lookupKey);
+            store.contactIds[row] = pojo.getContactId();
+            store.icons[row] = pojo.icon != null ? pojo.icon.toString() : null;
+            store.photoKeys[row] = pojo.getPhotoKey();
+            store.flags[row] = (byte) ((pojo.primary ? FLAG_PRIMARY : 0)
+                    | (pojo.starred ? FLAG_STARRED : 0)
+                    | (pojo.isHomeNumber() ? FLAG_HOME_NUMBER : 0));
+            store.names[row] = builder.intern(pojo.getName());
+            store.nameAlternatives[row] = builder.intern(pojo.getNameAlternative());
+            store.phoneticNames[row] = builder.intern(pojo.getPhoneticName());
+            store.nicknames[row] = builder.intern(pojo.getNickname());
+            store.phones[row] = builder.intern(pojo.phone);
+
+            int offset = row * FIELD_COUNT;
+            store.handles[offset + FIELD_NAME] = builder.add(pojo.normalizedName);
+            store.handles[offset + FIELD_NAME_ALTERNATIVE] = builder.add(pojo.getNormalizedNameAlternative());
+            store.handles[offset + FIELD_PHONETIC_NAME] = builder.add(pojo.getNormalizedPhoneticName());
+            store.handles[offset + FIELD_NICKNAME] = builder.add(pojo.getNormalizedNickname());
+            store.handles[offset + FIELD_PHONE] = builder.add(pojo.normalizedPhone);
+
+            ContactData contactData = pojo.getContactData();
+            if (contactData != null) {
+                store.mimeTypes[row] = builder.intern(contactData.getMimeType());
+                store.dataIds[row] = contactData.getId();
+                store.identifiers[row] = builder.intern(contactData.getIdentifier());
+                store.handles[offset + FIELD_IDENTIFIER] = builder.add(contactData.getNormalizedIdentifier());
+            } else {
+                store.handles[offset + FIELD_IDENTIFIER] = CodePointArena.NONE;
+            }
+        }
+        store.arena.trimToSize();
+        return store;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param field one of the FIELD_* constants
+     * @return true if field is displayed in results, only these need to be highlighted
+     */
+    static boolean isDisplayed(int field) {
+        return field == FIELD_NAME || field == FIELD_NICKNAME || field == FIELD_PHONE || field == FIELD_IDENTIFIER;
+    }
+
+    /**
+     * Match normalized value of one field in place.
+     *
+     * @param row        contact
+     * @param field      one of the FIELD_* constants
+     * @param fuzzyScore query to match
+     * @return match info of fuzzyScore, null if field is not set
+     */
+    @Nullable
+    MatchInfo match(int row, int field, @NonNull FuzzyScore fuzzyScore) {
+        return arena.match(handles[row * FIELD_COUNT + field], fuzzyScore);
+    }
+
+    /**
+     * Get normalized value of a field from a pojo of this store, e.g. to keep its match for highlighting.
+     *
+     * @param pojo  pojo returned by {@link #getPojo(int)} for row
+     * @param row   contact
+     * @param field one of the FIELD_* constants
+     * @return normalized value of pojo, null if not set or if it differs from the value which is matched
+     */
+    @Nullable
+    StringNormalizer.Result getNormalized(@NonNull ContactsPojo pojo, int row, int field) {
+        StringNormalizer.Result normalized;
+        switch (field) {
+            case FIELD_NAME:
+                normalized = pojo.normalizedName;
+                break;
+            case FIELD_NAME_ALTERNATIVE:
+                normalized = pojo.getNormalizedNameAlternative();
+                break;
+            case FIELD_PHONETIC_NAME:
+                normalized = pojo.getNormalizedPhoneticName();
+                break;
+            case FIELD_NICKNAME:
+                normalized = pojo.getNormalizedNickname();
+                break;
+            case FIELD_PHONE:
+                normalized = pojo.normalizedPhone;
+                break;
+            case FIELD_IDENTIFIER:
+                normalized = pojo.getContactData() != null ? pojo.getContactData().getNormalizedIdentifier() : null;
+                break;
+            default:
+                return null;
+        }
+        if (normalized == null || !arena.equalsAt(handles[row * FIELD_COUNT + field], normalized)) {
+            return null;
+        }
+        return normalized;
+    }
+
+    /**
+     * @param row             contact
+     * @param normalizedPhone phone number normalized with {@link PhoneNormalizer}
+     * @return true, if normalized phone number of contact has exactly the same code points
+     */
+    boolean hasSamePhone(int row, @NonNull StringNormalizer.Result normalizedPhone) {
+        return arena.equalsAt(handles[row * FIELD_COUNT + FIELD_PHONE], normalizedPhone);
+    }
+
+    /**
+     * @param row contact
+     * @return normalized phone number of contact, built from code points already stored
+     */
+    @Nullable
+    String getNormalizedPhoneString(int row) {
+        return arena.getString(handles[row * FIELD_COUNT + FIELD_PHONE]);
+    }
+
+    /**
+     * @param id id of contact
+     * @return row of contact with given id, -1 if not found
+     */
+    int indexOf(String id) {
+        Integer row = rowsById.get(id);
+        return row != null ? row : -1;
+    }
+
+    /**
+     * Get pojo of one contact, recently used pojos are reused.
+     *
+     * @param row contact
+     * @return pojo with same content as the one originally stored
+     */
+    @NonNull
+    ContactsPojo getPojo(int row) {
+        synchronized (pojoCache) {
+            ContactsPojo pojo = pojoCache.get(row);
+            if (pojo == null) {
+                pojo = materialize(row);
+                pojoCache.put(row, pojo);
+            }
+            return pojo;
+        }
+    }
+
+    /**
+     * Get pojo of one contact without adding it to the cache, e.g. when all contacts are needed.
+     *
+     * @param row contact
+     * @return pojo with same content as the one originally stored
+     */
+    @NonNull
+    ContactsPojo peekPojo(int row) {
+        ContactsPojo pojo;
+        synchronized (pojoCache) {
+            pojo = pojoCache.get(row);
+        }
+        return pojo != null ? pojo : materialize(row);
+    }
+
+    /**
+     * Create a stand-alone pojo for one contact.
+     * Name, phone and identifier are normalized again, so highlighting works as for any other pojo.
+     */
+    @NonNull
+    private ContactsPojo materialize(int row) {
+        ContactsPojo pojo = new ContactsPojo(ids[row], lookupKeys[row], contactIds[row],
+                icons[row] != null ? Uri.parse(icons[row]) : null,
+                (flags[row] & FLAG_PRIMARY) != 0, (flags[row] & FLAG_STARRED) != 0);
+        pojo.setPhotoKey(photoKeys[row]);
+        pojo.setName(names[row], true);
+        pojo.setNameAlternative(nameAlternatives[row]);
+        pojo.setPhoneticName(phoneticNames[row]);
+        pojo.setNickname(nicknames[row]);
+        pojo.setPhone(phones[row], (flags[row] & FLAG_HOME_NUMBER) != 0);
+        if (mimeTypes[row] != null) {
+            ContactData contactData = new ContactData(mimeTypes[row], dataIds[row]);
+            contactData.setIdentifier(identifiers[row]);
+            pojo.setIm(contactData);
+        }
+        return pojo;
+    }
+
+    /**
+     * @return estimated heap size of normalized names in bytes
+     */
+    long estimateArenaHeapSize() {
+        return arena.estimateHeapSize();
+    }
+
+    /**
+     * Interns strings and normalized values while building the store.
+     */
+    private static class Builder {
+        private final CodePointArena arena;
+        private final Map<String, String> strings = new HashMap<>();
+        private final Map<StringNormalizer.Result, Integer> resultHandles = new HashMap<>();
+
+        private Builder(CodePointArena arena) {
+            this.arena = arena;
+        }
+
+        private String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String interned = strings.get(value);
+            if (interned == null) {
+                strings.put(value, value);
+                interned = value;
+            }
+            return interned;
+        }
+
+        /**
+         * Add normalized value, reusing an existing entry with same code points.
+         */
+        private int add(StringNormalizer.Result normalized) {
+            if (normalized == null) {
+                return CodePointArena.NONE;
+            }
+            Integer handle = resultHandles.get(normalized);
+            if (handle == null) {
+                handle = arena.add(normalized);
+                resultHandles.put(normalized, handle);
+            }
+            return handle;
+        }
+    }
+}
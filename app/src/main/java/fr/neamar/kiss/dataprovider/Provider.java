@@ -1,23 +1,34 @@
 package fr.neamar.kiss.dataprovider;
 
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Binder;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import fr.neamar.kiss.MainActivity;
 import fr.neamar.kiss.loader.LoadPojos;
+import fr.neamar.kiss.loader.LoadScheduler;
 import fr.neamar.kiss.pojo.Pojo;
 import fr.neamar.kiss.utils.Log;
 
 public abstract class Provider<T extends Pojo> extends Service implements IProvider<T> {
     private final static String TAG = Provider.class.getSimpleName();
 
+    /**
+     * Reload requests within this time are coalesced into one load
+     */
+    private static final long RELOAD_QUIET_WINDOW_MS = 300;
+
     /**
      * Binder given to clients
      */
@@ -26,6 +37,10 @@ public abstract class Provider<T extends Pojo> extends Service implements IProvi
      * Storage for search items used by this provider
      */
     private List<T> pojos = new ArrayList<>();
+    /**
+     * Search items by id, so records can be found without scanning all of them
+     */
+    private Map<String, T> pojosById = new HashMap<>();
 
     /**
      * Scheme used to build ids for the pojos created by this provider
@@ -33,9 +48,16 @@ public abstract class Provider<T extends Pojo> extends Service implements IProvi
     private String pojoScheme = "(none)://";
 
     private long start;
+    private LoadScheduler.Stage stage = null;
     private LoadPojos<T> loader;
     private boolean loaded = false;
 
+    /**
+     * Incremented on every load request, only the latest request will be started
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
     /**
      * (Re-)load the providers resources when the provider has been completely initialized
      * by the Android system
@@ -47,13 +69,61 @@ public abstract class Provider<T extends Pojo> extends Service implements IProvi
         this.reload();
     }
 
+    /**
+     * Use this provider as plain object instead of an Android service, see {@link ProviderRegistry}.
+     * Does what the Android system does when the service is created.
+     * <p>
+     * The provider can be used as soon as this method returns. {@link #onCreate()} is run
+     * at the front of the main thread's queue, so callers that are still being constructed
+     * (e.g. {@link fr.neamar.kiss.DataHandler}) are ready when loading starts.
+     *
+     * @param context application context
+     */
+    void attachInProcess(Context context) {
+        attachBaseContext(context);
+        handler.postAtFrontOfQueue(this::onCreate);
+    }
+
+    /**
+     * Counterpart of {@link #attachInProcess(Context)}
+     */
+    void detachInProcess() {
+        handler.post(this::onDestroy);
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
+        // invalidate pending load requests
+        generation.incrementAndGet();
         cancelInitialize();
     }
 
+    /**
+     * Request loading of pojos with given loader.
+     * <p>
+     * The first load is started immediately. Later requests are coalesced: the load only starts
+     * when there was no other request for {@link #RELOAD_QUIET_WINDOW_MS}, so a burst of
+     * reload requests (e.g. bulk install of apps) results in only one load and one LOAD_OVER broadcast.
+     *
+     * @param loader loader to use
+     */
     void initialize(LoadPojos<T> loader) {
+        final int requestGeneration = generation.incrementAndGet();
+        if (requestGeneration == 1) {
+            handler.post(() -> startInitialize(loader, requestGeneration));
+        } else {
+            handler.postDelayed(() -> startInitialize(loader, requestGeneration), RELOAD_QUIET_WINDOW_MS);
+        }
+    }
+
+    private void startInitialize(LoadPojos<T> loader, int requestGeneration) {
+        if (requestGeneration != generation.get()) {
+            // a newer request is pending
+            Log.v(TAG, "Coalescing reload of provider: " + this.getClass().getSimpleName());
+            return;
+        }
+
         cancelInitialize();
         start = System.currentTimeMillis();
 
@@ -61,7 +131,8 @@ public abstract class Provider<T extends Pojo> extends Service implements IProvi
 
         loader.setProvider(this);
         this.pojoScheme = loader.getPojoScheme();
-        this.loader = (LoadPojos<T>) loader.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        this.stage = loader.getStage();
+        this.loader = (LoadPojos<T>) loader.executeOnExecutor(LoadScheduler.getInstance().getExecutor(this.stage));
     }
 
     /**
@@ -88,6 +159,13 @@ public abstract class Provider<T extends Pojo> extends Service implements IProvi
         return this.loaded;
     }
 
+    /**
+     * @return stage of this provider while loading, null if loading was never started
+     */
+    public LoadScheduler.Stage getStage() {
+        return this.stage;
+    }
+
     public void loadOver(List<T> results) {
         long time = System.currentTimeMillis() - start;
 
@@ -96,7 +174,16 @@ public abstract class Provider<T extends Pojo> extends Service implements IProvi
         this.loader.setProvider(null);
         this.loader = null;
         this.loaded = true;
+        Map<String, T> resultsById = new HashMap<>(results.size() * 4 / 3 + 1);
+        for (T pojo : results) {
+            // keep first record with an id, like a scan of the list would do
+            if (!resultsById.containsKey(pojo.id)) {
+                resultsById.put(pojo.id, pojo);
+            }
+        }
+        this.pojosById = resultsById;
         this.pojos = results;
+        LoadScheduler.getInstance().onLoaded(this.stage);
 
         // Broadcast this event
         Intent i = new Intent(MainActivity.LOAD_OVER);
@@ -122,13 +209,7 @@ public abstract class Provider<T extends Pojo> extends Service implements IProvi
      * @return null if not found
      */
     public T findById(String id) {
-        for (T pojo : pojos) {
-            if (pojo.id.equals(id)) {
-                return pojo;
-            }
-        }
-
-        return null;
+        return pojosById.get(id);
     }
 
     @Override
@@ -0,0 +1,64 @@
+package fr.neamar.kiss.dataprovider;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import fr.neamar.kiss.utils.Log;
+
+/**
+ * Keeps {@link Provider} instances as plain objects inside the application process.
+ * <p/>
+ * Normally providers are Android services which need to be started and bound, and are only
+ * usable once the connection has been established asynchronously. Providers from this registry
+ * are created synchronously and are usable right away.
+ */
+public class ProviderRegistry {
+    private static final String TAG = ProviderRegistry.class.getSimpleName();
+
+    private final Context context;
+    private final Map<String, Provider<?>> providers = new HashMap<>();
+
+    public ProviderRegistry(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Get provider with given name, create it if it doesn't exist yet.
+     *
+     * @param name          Data provider name (i.e.: `AppProvider` → `"app"`)
+     * @param providerClass class of provider
+     * @return provider, null if provider couldn't be created
+     */
+    @Nullable
+    public synchronized IProvider<?> getProvider(@NonNull String name, @NonNull Class<?> providerClass) {
+        Provider<?> provider = providers.get(name);
+        if (provider == null) {
+            try {
+                provider = (Provider<?>) providerClass.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                Log.e(TAG, "Unable to create provider: " + name, e);
+                return null;
+            }
+            provider.attachInProcess(context);
+            providers.put(name, provider);
+        }
+        return provider;
+    }
+
+    /**
+     * Destroy provider with given name
+     *
+     * @param name Data provider name (i.e.: `AppProvider` → `"app"`)
+     */
+    public synchronized void removeProvider(@NonNull String name) {
+        Provider<?> provider = providers.remove(name);
+        if (provider != null) {
+            provider.detachInProcess();
+        }
+    }
+}
@@ -38,9 +38,14 @@ public class ShortcutsProvider extends Provider<ShortcutPojo> {
             launcher.registerCallback(new LauncherAppsCallback() {
                 @Override
                 public void onShortcutsChanged(@NonNull String packageName, @NonNull List<ShortcutInfo> shortcuts, @NonNull android.os.UserHandle user) {
+                    // hidden shortcuts can still be excluded from history, but only shortcuts of apps excluded from history are part of these ids
+                    DataHandler dataHandler = KissApplication.getApplication(ShortcutsProvider.this).getDataHandler();
+                    if (dataHandler.getPreferences().getExcludedFromHistoryPackages().contains(packageName)) {
+                        dataHandler.invalidateExcludedFromHistoryIds();
+                    }
                     if (isAnyShortcutVisible(shortcuts)) {
                         Log.d(TAG, "Shortcuts changed for " + packageName);
-                        KissApplication.getApplication(ShortcutsProvider.this).getDataHandler().reloadShortcuts();
+                        dataHandler.reloadShortcuts();
                     }
                 }
 
@@ -81,6 +86,12 @@ public class ShortcutsProvider extends Provider<ShortcutPojo> {
         }
     }
 
+    @Override
+    public void loadOver(List<ShortcutPojo> results) {
+        KissApplication.getApplication(this).getDataHandler().invalidateExcludedFromHistoryIds();
+        super.loadOver(results);
+    }
+
     @Override
     public void requestResults(String query, Searcher searcher) {
         StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
@@ -88,7 +99,8 @@ public class ShortcutsProvider extends Provider<ShortcutPojo> {
             return;
         }
 
-        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(this, queryNormalized.codePoints);
+        // detailed match indices are kept for highlighting
+        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(this, queryNormalized.codePoints, true);
 
         Set<String> excludedFavoriteIds = KissApplication.getApplication(this).getDataHandler().getExcludedFavorites();
 
@@ -98,17 +110,22 @@ public class ShortcutsProvider extends Provider<ShortcutPojo> {
                 continue;
             }
 
-            MatchInfo matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-            boolean match = pojo.updateMatchingRelevance(matchInfo, false);
+            MatchInfo nameMatchInfo = fuzzyScore.match(pojo.normalizedName.codePoints).copy();
+            boolean match = pojo.updateMatchingRelevance(nameMatchInfo, false);
 
             // check relevance for tags
+            MatchInfo tagsMatchInfo = null;
             if (pojo.getNormalizedTags() != null) {
-                matchInfo = fuzzyScore.match(pojo.getNormalizedTags().codePoints);
-                match = pojo.updateMatchingRelevance(matchInfo, match);
+                tagsMatchInfo = fuzzyScore.match(pojo.getNormalizedTags().codePoints).copy();
+                match = pojo.updateMatchingRelevance(tagsMatchInfo, match);
             }
 
-            if (match && !searcher.addResult(pojo)) {
-                return;
+            if (match) {
+                searcher.addMatch(pojo.normalizedName, nameMatchInfo);
+                searcher.addMatch(pojo.getNormalizedTags(), tagsMatchInfo);
+                if (!searcher.addResult(pojo)) {
+                    return;
+                }
             }
         }
     }
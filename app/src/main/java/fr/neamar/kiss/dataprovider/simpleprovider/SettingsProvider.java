@@ -114,7 +114,8 @@ public class SettingsProvider extends SimpleProvider<SettingPojo> {
             return;
         }
 
-        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(context, queryNormalized.codePoints);
+        // detailed match indices are kept for highlighting
+        FuzzyScore fuzzyScore = FuzzyFactory.createFuzzyScore(context, queryNormalized.codePoints, true);
         Set<String> excludedFavoriteIds = KissApplication.getApplication(context).getDataHandler().getExcludedFavorites();
 
         for (SettingPojo pojo : getPojos()) {
@@ -123,17 +124,20 @@ public class SettingsProvider extends SimpleProvider<SettingPojo> {
                 continue;
             }
 
-            MatchInfo matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-            boolean match = pojo.updateMatchingRelevance(matchInfo, false);
+            MatchInfo nameMatchInfo = fuzzyScore.match(pojo.normalizedName.codePoints).copy();
+            boolean match = pojo.updateMatchingRelevance(nameMatchInfo, false);
 
             if (!match) {
                 // Match localized setting name
-                matchInfo = fuzzyScore.match(settingsPrefix);
+                MatchInfo matchInfo = fuzzyScore.match(settingsPrefix);
                 match = pojo.updateMatchingRelevance(matchInfo, match);
             }
 
-            if (match && !searcher.addResult(pojo)) {
-                return;
+            if (match) {
+                searcher.addMatch(pojo.normalizedName, nameMatchInfo);
+                if (!searcher.addResult(pojo)) {
+                    return;
+                }
             }
         }
     }
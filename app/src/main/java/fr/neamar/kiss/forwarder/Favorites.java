@@ -8,6 +8,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.res.Configuration;
+import android.graphics.Canvas;
 import android.net.Uri;
 import android.provider.ContactsContract;
 import android.util.Pair;
@@ -19,12 +20,17 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.preference.PreferenceManager;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import fr.neamar.kiss.KissApplication;
@@ -34,6 +40,7 @@ import fr.neamar.kiss.db.DBHelper;
 import fr.neamar.kiss.pojo.Pojo;
 import fr.neamar.kiss.result.Result;
 import fr.neamar.kiss.ui.ListPopup;
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
 import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.PackageManagerUtils;
 import fr.neamar.kiss.utils.UserHandle;
@@ -44,6 +51,7 @@ public class Favorites extends Forwarder {
     // Package used by Android when an Intent can be matched with more than one app
     private static final String DEFAULT_RESOLVER = "com.android.internal.app.ResolverActivity";
     private FavoriteAdapter favoriteAdapter;
+    private int iconsGeneration;
 
     private static class ViewHolder extends RecyclerView.ViewHolder {
         private ViewHolder(@NonNull View itemView) {
@@ -58,6 +66,8 @@ public class Favorites extends Forwarder {
     private static class FavoriteAdapter extends RecyclerView.Adapter<ViewHolder> {
 
         private final List<Result<?>> results = new ArrayList<>();
+        // names of results when they were bound, to detect renamed favorites
+        private final List<String> names = new ArrayList<>();
         private OnItemClickListener mOnItemClickListener = null;
         private OnItemLongClickListener mOnItemLongClickListener = null;
 
@@ -70,6 +80,7 @@ public class Favorites extends Forwarder {
             if (fromPosition != toPosition) {
                 Result<?> result = results.remove(fromPosition);
                 results.add(toPosition, result);
+                names.add(toPosition, names.remove(fromPosition));
                 notifyItemMoved(fromPosition, toPosition);
                 return true;
             } else {
@@ -77,10 +88,53 @@ public class Favorites extends Forwarder {
             }
         }
 
+        /**
+         * Update favorites, only changed items are bound again.
+         * Results are compared by favorite id for identity and by instance for content, so
+         * results of unchanged favorites need to be reused.
+         */
         public void setFavorites(List<Result<?>> results) {
+            final List<Result<?>> oldResults = new ArrayList<>(this.results);
+            final List<String> oldNames = new ArrayList<>(this.names);
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+                @Override
+                public int getOldListSize() {
+                    return oldResults.size();
+                }
+
+                @Override
+                public int getNewListSize() {
+                    return results.size();
+                }
+
+                @Override
+                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                    return oldResults.get(oldItemPosition).getFavoriteId().equals(results.get(newItemPosition).getFavoriteId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                    Result<?> newResult = results.get(newItemPosition);
+                    return oldResults.get(oldItemPosition) == newResult
+                            && Objects.equals(oldNames.get(oldItemPosition), newResult.getPojo().getName());
+                }
+            });
+
             this.results.clear();
             this.results.addAll(results);
-            notifyDataSetChanged();
+            this.names.clear();
+            for (Result<?> result : results) {
+                this.names.add(result.getPojo().getName());
+            }
+            diff.dispatchUpdatesTo(this);
+        }
+
+        /**
+         * @return current results by their pojo, to reuse them for unchanged favorites
+         */
+        public Map<Pojo, Result<?>> getResultsByPojo() {
+            return results.stream()
+                    .collect(Collectors.toMap(Result::getPojo, Function.identity(), (first, second) -> first));
         }
 
         public void updateFavoritePositions(Context context) {
@@ -196,6 +250,14 @@ public class Favorites extends Forwarder {
         public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
         }
 
+        @Override
+        public void onChildDraw(@NonNull Canvas c, @NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder, float dX, float dY, int actionState, boolean isCurrentlyActive) {
+            if (actionState == ACTION_STATE_DRAG) {
+                FrameMetricsRecorder.getInstance().mark(FrameMetricsRecorder.Phase.FAVORITES_DRAG);
+            }
+            super.onChildDraw(c, recyclerView, viewHolder, dX, dY, actionState, isCurrentlyActive);
+        }
+
         @Override
         public void onSelectedChanged(@Nullable RecyclerView.ViewHolder viewHolder, int actionState) {
             super.onSelectedChanged(viewHolder, actionState);
@@ -251,6 +313,13 @@ public class Favorites extends Forwarder {
     }
 
     public void onFavoriteChange() {
+        onFavoriteChange(true);
+    }
+
+    /**
+     * @param reuseResults keep results of unchanged favorites with their loaded icons
+     */
+    private void onFavoriteChange(boolean reuseResults) {
         List<Pojo> favoritesPojo = KissApplication.getApplication(mainActivity).getDataHandler().getFavorites();
         int favSize = favoritesPojo.size();
 
@@ -258,7 +327,21 @@ public class Favorites extends Forwarder {
         if (favoritesBar.getLayoutManager() instanceof GridLayoutManager) {
             ((GridLayoutManager) favoritesBar.getLayoutManager()).setSpanCount(Math.max(favSize, 1));
         }
-        favoriteAdapter.setFavorites(favoritesPojo.stream().map(pojo -> Result.fromPojo(mainActivity, pojo)).collect(Collectors.toList()));
+
+        // all icons need to be loaded again, if icon pack or custom icons changed
+        int currentIconsGeneration = KissApplication.getApplication(mainActivity).getIconsHandler().getIconsGeneration();
+        if (currentIconsGeneration != iconsGeneration) {
+            iconsGeneration = currentIconsGeneration;
+            reuseResults = false;
+        }
+
+        Map<Pojo, Result<?>> existingResults = reuseResults ? favoriteAdapter.getResultsByPojo() : Collections.emptyMap();
+        favoriteAdapter.setFavorites(favoritesPojo.stream()
+                .map(pojo -> {
+                    Result<?> result = existingResults.get(pojo);
+                    return result != null ? result : Result.fromPojo(mainActivity, pojo);
+                })
+                .collect(Collectors.toList()));
     }
 
     private void onClick(View v, Result<?> result) {
@@ -326,7 +409,7 @@ public class Favorites extends Forwarder {
     }
 
     public void onConfigurationChanged(@NonNull Configuration newConfig) {
-        onFavoriteChange();
+        onFavoriteChange(false);
     }
 
 }
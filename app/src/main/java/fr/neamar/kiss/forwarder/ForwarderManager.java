@@ -48,6 +48,10 @@ public class ForwarderManager extends Forwarder {
         widgetsForwarder.onStart();
     }
 
+    public void onStop() {
+        widgetsForwarder.onStop();
+    }
+
     public void onResume() {
         interfaceTweaks.onResume();
         experienceTweaks.onResume();
@@ -28,6 +28,7 @@ import androidx.preference.PreferenceManager;
 
 import java.util.List;
 
+import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.MainActivity;
 import fr.neamar.kiss.R;
 import fr.neamar.kiss.UIColors;
@@ -273,6 +274,7 @@ public class InterfaceTweaks extends Forwarder {
     public void onConfigurationChanged(@NonNull Configuration newConfig) {
         TagDummyResult.resetShape();
         UIColors.clearColorCache();
+        KissApplication.getApplication(mainActivity).getIconsHandler().clearGeneratedDrawables();
         UIColors.updateThemePrimaryColor(mainActivity);
     }
 }
@@ -2,78 +2,83 @@ package fr.neamar.kiss.forwarder;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.content.Context;
-import android.content.SharedPreferences;
 import android.provider.Settings;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ListView;
 
+import java.util.Set;
+
+import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.MainActivity;
 import fr.neamar.kiss.R;
-import fr.neamar.kiss.notification.NotificationListener;
+import fr.neamar.kiss.notification.NotificationStore;
 import fr.neamar.kiss.utils.Log;
 
 class Notification extends Forwarder {
     private static final String TAG = Notification.class.getSimpleName();
-    private final SharedPreferences notificationPreferences;
+    private final NotificationStore notificationStore;
 
-    private final SharedPreferences.OnSharedPreferenceChangeListener onNotificationDisplayed = (sharedPreferences, packageKey) -> {
-        if (packageKey != null) {
-            final ListView list = mainActivity.list;
+    private final NotificationStore.OnNotificationsChangedListener onNotificationsChanged = packageKeys -> {
+        final ListView list = mainActivity.list;
 
-            // A new notification was received, iterate over the currently displayed results
-            // if one of them is for the package that just received a notification,
-            // update the notification dot visual if required.
-            //
-            // This implementation should be more efficient than calling notifyDataSetInvalidated()
-            // since we only iterate over the items currently displayed in the list
-            // and do not rebuild them all, just toggle visibility if required.
-            // Also, it means we get to display an animation, and that's cool :D
+        // Notifications changed, iterate over the currently displayed results
+        // if one of them is for a package whose notifications changed,
+        // update the notification dot visual if required.
+        //
+        // This implementation should be more efficient than calling notifyDataSetInvalidated()
+        // since we only iterate over the items currently displayed in the list
+        // and do not rebuild them all, just toggle visibility if required.
+        // Changes are coalesced by the store, so views are walked once per burst of notifications.
+        // Also, it means we get to display an animation, and that's cool :D
 
-            updateDots(list, list.getLastVisiblePosition() - list.getFirstVisiblePosition() + 1, packageKey);
-            updateDots(mainActivity.favoritesBar, mainActivity.favoritesBar.getChildCount(), packageKey);
-        }
+        updateDots(list, list.getLastVisiblePosition() - list.getFirstVisiblePosition() + 1, packageKeys);
+        updateDots(mainActivity.favoritesBar, mainActivity.favoritesBar.getChildCount(), packageKeys);
     };
 
     Notification(MainActivity mainActivity) {
         super(mainActivity);
-        SharedPreferences notifsPrefBuilder = null;
+        NotificationStore store = KissApplication.getApplication(mainActivity).getNotificationStore();
+        boolean hasAccess = false;
 
         try {
-            // Retrieve the preference iff permission has been given
+            // Listen for notifications iff permission has been given
             String allowedApps = Settings.Secure.getString(mainActivity.getContentResolver(), "enabled_notification_listeners");
-            if (allowedApps != null && allowedApps.contains(mainActivity.getPackageName())) {
-                notifsPrefBuilder = mainActivity.getSharedPreferences(NotificationListener.NOTIFICATION_PREFERENCES_NAME, Context.MODE_PRIVATE);
-            } else {
-                // We don't have permission, make sure the SharedPreferences is empty to avoid displaying "ghost" notifications
-                mainActivity.getSharedPreferences(NotificationListener.NOTIFICATION_PREFERENCES_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+            hasAccess = allowedApps != null && allowedApps.contains(mainActivity.getPackageName());
+            if (!hasAccess) {
+                // We don't have permission, make sure the store is empty to avoid displaying "ghost" notifications
+                store.clear();
             }
         } catch (Error e) {
             Log.d(TAG, "Unable to check for notification access", e);
         }
-        notificationPreferences = notifsPrefBuilder;
+        notificationStore = hasAccess ? store : null;
     }
 
     void onResume() {
-        if (notificationPreferences != null) {
-            notificationPreferences.registerOnSharedPreferenceChangeListener(onNotificationDisplayed);
+        if (notificationStore != null) {
+            notificationStore.addListener(onNotificationsChanged);
         }
     }
 
     void onPause() {
-        if (notificationPreferences != null) {
-            notificationPreferences.unregisterOnSharedPreferenceChangeListener(onNotificationDisplayed);
+        if (notificationStore != null) {
+            notificationStore.removeListener(onNotificationsChanged);
         }
     }
 
-    private void updateDots(ViewGroup vg, int childCount, String packageKey) {
+    private void updateDots(ViewGroup vg, int childCount, Set<String> packageKeys) {
         for (int i = 0; i < childCount; i++) {
             View v = vg.getChildAt(i);
+            if (v == null) {
+                continue;
+            }
             final View notificationDot = v.findViewById(R.id.item_notification_dot);
-            if (notificationDot != null && packageKey.equals(notificationDot.getTag())) {
-                boolean hasNotification = notificationPreferences.contains(packageKey);
-                animateDot(notificationDot, hasNotification);
+            if (notificationDot != null && notificationDot.getTag() instanceof String) {
+                String packageKey = (String) notificationDot.getTag();
+                if (packageKeys.contains(packageKey)) {
+                    animateDot(notificationDot, notificationStore.hasNotifications(packageKey));
+                }
             }
         }
     }
@@ -4,7 +4,6 @@ import static android.appwidget.AppWidgetProviderInfo.WIDGET_FEATURE_CONFIGURATI
 import static android.appwidget.AppWidgetProviderInfo.WIDGET_FEATURE_RECONFIGURABLE;
 
 import android.app.Activity;
-import android.appwidget.AppWidgetHost;
 import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProviderInfo;
@@ -14,6 +13,7 @@ import android.content.Intent;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.view.ContextMenu;
@@ -29,6 +29,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -40,6 +41,7 @@ import fr.neamar.kiss.R;
 import fr.neamar.kiss.ui.ListPopup;
 import fr.neamar.kiss.ui.WidgetHost;
 import fr.neamar.kiss.utils.DrawableUtils;
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
 import fr.neamar.kiss.utils.Log;
 
 class Widgets extends Forwarder {
@@ -57,12 +59,19 @@ class Widgets extends Forwarder {
      * Widgets fields
      */
     private AppWidgetManager mAppWidgetManager;
-    private AppWidgetHost mAppWidgetHost;
+    private WidgetHost mAppWidgetHost;
 
     /**
      * View widgets are added to
      */
     private ViewGroup widgetArea;
+    /**
+     * Widgets which are restored but not inflated yet, as pairs of widget id and line size
+     */
+    private final ArrayDeque<int[]> pendingWidgets = new ArrayDeque<>();
+    private long pendingWidgetsStart = 0;
+    private long pendingWidgetsDuration = 0;
+    private int pendingWidgetsCount = 0;
     private ActivityResultLauncher<Intent> requestAppWidgetPicked;
     private ActivityResultLauncher<Intent> requestAppWidgetBound;
 
@@ -79,21 +88,24 @@ class Widgets extends Forwarder {
         requestAppWidgetPicked = mainActivity.registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), activityResult -> appWidgetPicked(activityResult.getResultCode(), activityResult.getData()));
         requestAppWidgetBound = mainActivity.registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), activityResult -> appWidgetBound(activityResult.getResultCode(), activityResult.getData()));
 
-        restoreWidgets();
+        // widgets are inflated when main thread is idle after first frame, so they don't delay startup and first search
+        restoreWidgets(true);
     }
 
     private void onAppWidgetRemoved() {
-        restoreWidgets();
+        restoreWidgets(false);
         serializeState();
     }
 
     public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        inflatePendingWidgets();
         if (requestCode == REQUEST_APPWIDGET_CONFIGURED && resultCode == Activity.RESULT_CANCELED) {
             removeWidget(data);
         }
     }
 
     private void appWidgetPicked(int resultCode, Intent data) {
+        inflatePendingWidgets();
         switch (resultCode) {
             case Activity.RESULT_OK:
                 if (data != null) {
@@ -115,6 +127,7 @@ class Widgets extends Forwarder {
     }
 
     private void appWidgetBound(int resultCode, Intent data) {
+        inflatePendingWidgets();
         switch (resultCode) {
             case Activity.RESULT_OK:
                 if (data != null) {
@@ -154,6 +167,7 @@ class Widgets extends Forwarder {
 
     boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == R.id.add_widget) {
+            inflatePendingWidgets();
             // request widget picker, a selection will lead to a call of onActivityResult
             int appWidgetId = mAppWidgetHost.allocateAppWidgetId();
             Intent pickIntent = new Intent(mainActivity, PickAppWidgetActivity.class);
@@ -179,6 +193,7 @@ class Widgets extends Forwarder {
     }
 
     private void serializeState() {
+        inflatePendingWidgets();
         List<String> builder = new ArrayList<>(widgetArea.getChildCount());
         for (int i = 0; i < widgetArea.getChildCount(); i++) {
             AppWidgetHostView view = (AppWidgetHostView) widgetArea.getChildAt(i);
@@ -198,8 +213,10 @@ class Widgets extends Forwarder {
 
     /**
      * Display all widgets based on state
+     *
+     * @param deferred inflate widgets one by one when main thread is idle, instead of right away
      */
-    private void restoreWidgets() {
+    private void restoreWidgets(boolean deferred) {
         // only add widgets if in minimal mode
         if (!prefs.getBoolean("history-hide", false)) {
             return;
@@ -208,6 +225,7 @@ class Widgets extends Forwarder {
         // remove empty list view when using widgets, this would block touches on the widget
         mainActivity.emptyListView.setVisibility(View.GONE);
         widgetArea.removeAllViews();
+        pendingWidgets.clear();
         String widgetsConfString = prefs.getString(WIDGET_PREF_KEY, "");
         String[] widgetsConf = widgetsConfString.split(";");
         Set<Integer> idsUsed = new HashSet<>();
@@ -219,7 +237,7 @@ class Widgets extends Forwarder {
             int id = Integer.parseInt(conf[0]);
             int lineSize = Integer.parseInt(conf[1]);
             idsUsed.add(id);
-            addWidget(id, lineSize);
+            pendingWidgets.add(new int[]{id, lineSize});
         }
 
         // kill zombie widgets
@@ -234,6 +252,44 @@ class Widgets extends Forwarder {
 
         // Start listening for widget update
         mAppWidgetHost.startListening();
+
+        pendingWidgetsStart = SystemClock.uptimeMillis();
+        pendingWidgetsDuration = 0;
+        pendingWidgetsCount = pendingWidgets.size();
+        if (deferred && !pendingWidgets.isEmpty()) {
+            widgetArea.post(() -> Looper.myQueue().addIdleHandler(() -> {
+                inflateNextPendingWidget();
+                return !pendingWidgets.isEmpty();
+            }));
+        } else {
+            inflatePendingWidgets();
+        }
+    }
+
+    /**
+     * Inflate all widgets which are not inflated yet.
+     * Must be called before widgets are changed, so changes aren't overwritten by restored widgets.
+     */
+    private void inflatePendingWidgets() {
+        while (!pendingWidgets.isEmpty()) {
+            inflateNextPendingWidget();
+        }
+    }
+
+    private void inflateNextPendingWidget() {
+        int[] widget = pendingWidgets.poll();
+        if (widget == null) {
+            return;
+        }
+        long start = SystemClock.uptimeMillis();
+        addWidget(widget[0], widget[1]);
+        pendingWidgetsDuration += SystemClock.uptimeMillis() - start;
+
+        if (pendingWidgets.isEmpty()) {
+            long total = SystemClock.uptimeMillis() - pendingWidgetsStart;
+            Log.i(TAG, "Inflated " + pendingWidgetsCount + " widgets in " + pendingWidgetsDuration + "ms, done " + total + "ms after restore");
+            FrameMetricsRecorder.getInstance().recordTask("widgets", pendingWidgetsDuration);
+        }
     }
 
     /**
@@ -552,7 +608,13 @@ class Widgets extends Forwarder {
         mAppWidgetHost.startListening();
     }
 
+    public void onStop() {
+        // Widgets aren't visible, updates are delivered when listening starts again
+        mAppWidgetHost.suspendListening();
+    }
+
     public void onDestroy() {
+        pendingWidgets.clear();
         mAppWidgetHost.stopListening();
     }
 }
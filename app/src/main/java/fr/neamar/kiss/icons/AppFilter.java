@@ -0,0 +1,195 @@
+package fr.neamar.kiss.icons;
+
+import android.content.ComponentName;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.neamar.kiss.utils.Log;
+
+/**
+ * Content of an icon pack's appfilter.xml.
+ * <p/>
+ * Parsing appfilter.xml of big icon packs is slow, so parsed content can be written to a compact
+ * binary file, which is used as long as the version of the icon pack doesn't change.
+ * Strings that appear multiple times (package names, drawable names) are stored only once.
+ */
+class AppFilter {
+    private static final String TAG = AppFilter.class.getSimpleName();
+
+    private static final int MAGIC = 0x41505046; // APPF
+    private static final int FORMAT_VERSION = 1;
+    private static final int NONE = -1;
+
+    // false, if appfilter.xml couldn't be parsed completely
+    boolean complete = true;
+    float scaleFactor = 1.0f;
+    final List<String> backImages = new ArrayList<>();
+    @Nullable
+    String maskImage = null;
+    @Nullable
+    String frontImage = null;
+    final List<ComponentName> itemComponents = new ArrayList<>();
+    final List<String> itemDrawables = new ArrayList<>();
+    final List<ComponentName> calendarComponents = new ArrayList<>();
+    final List<String> calendarPrefixes = new ArrayList<>();
+
+    void addItem(@NonNull ComponentName componentName, @NonNull String drawableName) {
+        itemComponents.add(componentName);
+        itemDrawables.add(drawableName);
+    }
+
+    void addCalendar(@NonNull ComponentName componentName, @NonNull String prefix) {
+        calendarComponents.add(componentName);
+        calendarPrefixes.add(prefix);
+    }
+
+    /**
+     * Read app filter from binary file
+     *
+     * @param file        file written by {@link #write(File, String)}
+     * @param packVersion version of the icon pack
+     * @return app filter, null if file doesn't exist or was written for another version
+     */
+    @Nullable
+    static AppFilter read(@NonNull File file, @NonNull String packVersion) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || !packVersion.equals(input.readUTF())) {
+                return null;
+            }
+            String[] strings = new String[input.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = input.readUTF();
+            }
+
+            AppFilter appFilter = new AppFilter();
+            appFilter.scaleFactor = input.readFloat();
+            int backCount = input.readInt();
+            for (int i = 0; i < backCount; i++) {
+                appFilter.backImages.add(strings[input.readInt()]);
+            }
+            appFilter.maskImage = readString(input, strings);
+            appFilter.frontImage = readString(input, strings);
+
+            int itemCount = input.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                ComponentName componentName = new ComponentName(strings[input.readInt()], strings[input.readInt()]);
+                appFilter.addItem(componentName, strings[input.readInt()]);
+            }
+            int calendarCount = input.readInt();
+            for (int i = 0; i < calendarCount; i++) {
+                ComponentName componentName = new ComponentName(strings[input.readInt()], strings[input.readInt()]);
+                appFilter.addCalendar(componentName, strings[input.readInt()]);
+            }
+            return appFilter;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Unable to read app filter from " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Write app filter to binary file
+     *
+     * @param file        target file
+     * @param packVersion version of the icon pack
+     */
+    void write(@NonNull File file, @NonNull String packVersion) {
+        StringTable strings = new StringTable();
+        for (String backImage : backImages) {
+            strings.add(backImage);
+        }
+        strings.add(maskImage);
+        strings.add(frontImage);
+        for (int i = 0; i < itemComponents.size(); i++) {
+            strings.add(itemComponents.get(i).getPackageName());
+            strings.add(itemComponents.get(i).getClassName());
+            strings.add(itemDrawables.get(i));
+        }
+        for (int i = 0; i < calendarComponents.size(); i++) {
+            strings.add(calendarComponents.get(i).getPackageName());
+            strings.add(calendarComponents.get(i).getClassName());
+            strings.add(calendarPrefixes.get(i));
+        }
+
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(packVersion);
+            output.writeInt(strings.list.size());
+            for (String string : strings.list) {
+                output.writeUTF(string);
+            }
+
+            output.writeFloat(scaleFactor);
+            output.writeInt(backImages.size());
+            for (String backImage : backImages) {
+                output.writeInt(strings.indexOf(backImage));
+            }
+            output.writeInt(strings.indexOf(maskImage));
+            output.writeInt(strings.indexOf(frontImage));
+
+            output.writeInt(itemComponents.size());
+            for (int i = 0; i < itemComponents.size(); i++) {
+                output.writeInt(strings.indexOf(itemComponents.get(i).getPackageName()));
+                output.writeInt(strings.indexOf(itemComponents.get(i).getClassName()));
+                output.writeInt(strings.indexOf(itemDrawables.get(i)));
+            }
+            output.writeInt(calendarComponents.size());
+            for (int i = 0; i < calendarComponents.size(); i++) {
+                output.writeInt(strings.indexOf(calendarComponents.get(i).getPackageName()));
+                output.writeInt(strings.indexOf(calendarComponents.get(i).getClassName()));
+                output.writeInt(strings.indexOf(calendarPrefixes.get(i)));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to write app filter to " + file, e);
+            return;
+        }
+        if (!tmpFile.renameTo(file)) {
+            Log.w(TAG, "Unable to write app filter to " + file);
+        }
+    }
+
+    @Nullable
+    private static String readString(DataInputStream input, String[] strings) throws IOException {
+        int index = input.readInt();
+        return index == NONE ? null : strings[index];
+    }
+
+    private static class StringTable {
+        private final List<String> list = new ArrayList<>();
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        private void add(@Nullable String string) {
+            if (string != null && !indices.containsKey(string)) {
+                indices.put(string, list.size());
+                list.add(string);
+            }
+        }
+
+        private int indexOf(@Nullable String string) {
+            if (string == null) {
+                return NONE;
+            }
+            Integer index = indices.get(string);
+            return index != null ? index : NONE;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -38,13 +39,16 @@ import java.util.Random;
 import java.util.Set;
 
 import fr.neamar.kiss.R;
+import fr.neamar.kiss.utils.BitmapPool;
 import fr.neamar.kiss.utils.DrawableUtils;
 import fr.neamar.kiss.utils.Log;
+import fr.neamar.kiss.utils.PackageManagerUtils;
 import fr.neamar.kiss.utils.UserHandle;
 import fr.neamar.kiss.utils.Utilities;
 
 public class IconPackXML implements IconPack {
     protected static final String TAG = IconPackXML.class.getSimpleName();
+    private static final PaintFlagsDrawFilter DRAW_FILTER = new PaintFlagsDrawFilter(Paint.ANTI_ALIAS_FLAG, Paint.FILTER_BITMAP_FLAG);
     private final Map<ComponentName, Set<DrawableInfo>> drawablesByComponent = new HashMap<>(0);
     // instance of a resource object of an icon pack
     private Resources packResources;
@@ -66,7 +70,7 @@ public class IconPackXML implements IconPack {
         // start async loading
         mLoadTask = Utilities.runAsync((task) -> {
             if (task == mLoadTask) {
-                load(context.getPackageManager());
+                load(context);
             }
             return null;
         }, (task, result) -> {
@@ -85,16 +89,19 @@ public class IconPackXML implements IconPack {
         return loaded;
     }
 
-    private void load(PackageManager packageManager) {
+    private void load(Context context) {
         if (!loaded) {
             synchronized (this) {
                 if (!loaded) {
                     try {
-                        packResources = packageManager.getResourcesForApplication(iconPackPackageName);
+                        packResources = context.getPackageManager().getResourcesForApplication(iconPackPackageName);
                     } catch (PackageManager.NameNotFoundException e) {
                         Log.e(TAG, "Unable to get icon pack resources: " + iconPackPackageName, e);
                     }
-                    parseAppFilterXML();
+                    AppFilter appFilter = loadAppFilter(context);
+                    if (appFilter != null) {
+                        applyAppFilter(appFilter);
+                    }
                     loaded = true;
                 }
             }
@@ -103,7 +110,7 @@ public class IconPackXML implements IconPack {
 
     @Override
     public void loadDrawables(@NonNull Context ctx) {
-        load(ctx.getPackageManager());
+        load(ctx);
     }
 
     /**
@@ -191,10 +198,10 @@ public class IconPackXML implements IconPack {
         int w = ctx.getResources().getDimensionPixelSize(R.dimen.result_icon_size);
         int h = ctx.getResources().getDimensionPixelSize(R.dimen.result_icon_size);
         // create a bitmap for the result
-        Bitmap result = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(result);
-        canvas.setDrawFilter(new PaintFlagsDrawFilter(Paint.ANTI_ALIAS_FLAG,
-                Paint.FILTER_BITMAP_FLAG));
+        BitmapPool pool = BitmapPool.getInstance();
+        Bitmap result = pool.acquire(w, h);
+        Canvas canvas = pool.obtainCanvas(result);
+        canvas.setDrawFilter(DRAW_FILTER);
         float sanitizedScaleFactor = scaleFactor;
         if (maskImage == null && backImages.isEmpty() && frontImage == null) {
             // fall back to rescaling only if necessary
@@ -210,6 +217,10 @@ public class IconPackXML implements IconPack {
         } else {
             canvas.drawBitmap(defaultBitmap, getResizeMatrix(defaultBitmap, w, h), null);
         }
+        if (defaultDrawable != icon) {
+            // bitmap was only created to draw the icon
+            pool.release(defaultBitmap);
+        }
 
         // mask the scaled bitmap
         if (maskImage != null) {
@@ -240,6 +251,7 @@ public class IconPackXML implements IconPack {
             canvas.drawBitmap(frontImageBitmap, getResizeMatrix(frontImageBitmap, w, h), paint);
         }
 
+        pool.releaseCanvas(canvas);
         return new BitmapDrawable(packResources, result);
     }
 
@@ -278,14 +290,95 @@ public class IconPackXML implements IconPack {
         return packResources.getIdentifier(name, defType, iconPackPackageName);
     }
 
-    private void parseAppFilterXML() {
+    /**
+     * Get content of appfilter.xml, from binary cache if icon pack wasn't updated since last parsing.
+     *
+     * @return app filter, null if icon pack can't be used
+     */
+    @Nullable
+    private AppFilter loadAppFilter(Context context) {
         if (packResources == null)
-            return;
+            return null;
 
-        long start = System.currentTimeMillis();
+        String packVersion = PackageManagerUtils.getPackageVersion(context, iconPackPackageName, UserHandle.OWNER);
+        File cacheFile = new File(getAppFilterCacheDir(context), iconPackPackageName);
+        if (packVersion != null) {
+            long start = System.currentTimeMillis();
+            AppFilter appFilter = AppFilter.read(cacheFile, packVersion);
+            if (appFilter != null) {
+                long end = System.currentTimeMillis();
+                Log.i(TAG, (end - start) + " milliseconds to read cached appfilter.xml");
+                return appFilter;
+            }
+        }
+
+        AppFilter appFilter = parseAppFilterXML();
+        if (packVersion != null && appFilter.complete) {
+            appFilter.write(cacheFile, packVersion);
+        }
+        return appFilter;
+    }
+
+    private static File getAppFilterCacheDir(Context context) {
+        File dir = new File(context.getCacheDir(), "appfilter");
+        if (!dir.exists() && !dir.mkdir())
+            Log.w(TAG, "failed to create path " + dir.getPath());
+        return dir;
+    }
+
+    /**
+     * Resolve images and build drawables by component from app filter
+     */
+    private void applyAppFilter(@NonNull AppFilter appFilter) {
+        for (String drawableName : appFilter.backImages) {
+            Drawable drawable = getDrawable(new SimpleDrawable(drawableName));
+            if (drawable != null) {
+                backImages.add(drawable);
+            }
+        }
+        if (appFilter.maskImage != null) {
+            maskImage = getDrawable(new SimpleDrawable(appFilter.maskImage));
+        }
+        if (appFilter.frontImage != null) {
+            frontImage = getDrawable(new SimpleDrawable(appFilter.frontImage));
+        }
+        scaleFactor = appFilter.scaleFactor;
 
-        Map<String, CalendarDrawable> calendarDrawablesByPrefix = new HashMap<>(0);
         Map<String, XmlDrawableInfo> drawables = new HashMap<>(0);
+        for (int i = 0; i < appFilter.itemComponents.size(); i++) {
+            String drawableName = appFilter.itemDrawables.get(i);
+            XmlDrawableInfo drawableInfo = drawables.get(drawableName);
+            if (drawableInfo == null) {
+                drawableInfo = new SimpleDrawable(drawableName);
+                drawables.put(drawableName, drawableInfo);
+            }
+            addDrawable(appFilter.itemComponents.get(i), drawableInfo);
+        }
+
+        Map<String, CalendarDrawable> calendarDrawablesByPrefix = new HashMap<>(0);
+        for (int i = 0; i < appFilter.calendarComponents.size(); i++) {
+            String prefix = appFilter.calendarPrefixes.get(i);
+            CalendarDrawable drawableInfo = calendarDrawablesByPrefix.get(prefix);
+            if (drawableInfo == null) {
+                drawableInfo = new CalendarDrawable(prefix);
+                calendarDrawablesByPrefix.put(prefix, drawableInfo);
+            }
+            addDrawable(appFilter.calendarComponents.get(i), drawableInfo);
+        }
+    }
+
+    private void addDrawable(@NonNull ComponentName componentName, @NonNull DrawableInfo drawableInfo) {
+        Set<DrawableInfo> infoSet = drawablesByComponent.get(componentName);
+        if (infoSet == null)
+            drawablesByComponent.put(componentName, infoSet = new HashSet<>(1));
+        infoSet.add(drawableInfo);
+    }
+
+    @NonNull
+    private AppFilter parseAppFilterXML() {
+        long start = System.currentTimeMillis();
+
+        AppFilter appFilter = new AppFilter();
         try {
             XmlPullParser xpp = findAppFilterXml();
             if (xpp != null) {
@@ -296,32 +389,20 @@ public class IconPackXML implements IconPack {
                         if (xpp.getName().equals("iconback")) {
                             for (int i = 0; i < xpp.getAttributeCount(); i++) {
                                 if (xpp.getAttributeName(i).startsWith("img")) {
-                                    String drawableName = xpp.getAttributeValue(i);
-                                    Drawable drawable = getDrawable(new SimpleDrawable(drawableName));
-                                    if (drawable != null) {
-                                        backImages.add(drawable);
-                                    }
+                                    appFilter.backImages.add(xpp.getAttributeValue(i));
                                 }
                             }
                         }
                         //parse <iconmask> xml tags used as mask of generated icons
                         else if (xpp.getName().equals("iconmask")) {
                             if (xpp.getAttributeCount() > 0 && xpp.getAttributeName(0).equals("img1")) {
-                                String drawableName = xpp.getAttributeValue(0);
-                                Drawable drawable = getDrawable(new SimpleDrawable(drawableName));
-                                if (drawable != null) {
-                                    maskImage = drawable;
-                                }
+                                appFilter.maskImage = xpp.getAttributeValue(0);
                             }
                         }
                         //parse <iconupon> xml tags used as front image of generated icons
                         else if (xpp.getName().equals("iconupon")) {
                             if (xpp.getAttributeCount() > 0 && xpp.getAttributeName(0).equals("img1")) {
-                                String drawableName = xpp.getAttributeValue(0);
-                                Drawable drawable = getDrawable(new SimpleDrawable(drawableName));
-                                if (drawable != null) {
-                                    frontImage = drawable;
-                                }
+                                appFilter.frontImage = xpp.getAttributeValue(0);
                             }
                         }
                         //parse <scale> xml tags used as scale factor of original bitmap icon
@@ -332,7 +413,7 @@ public class IconPackXML implements IconPack {
                             }
                             if (factor != null) {
                                 try {
-                                    scaleFactor = Float.parseFloat(factor);
+                                    appFilter.scaleFactor = Float.parseFloat(factor);
                                 } catch (NumberFormatException ignored) {
                                 }
                             }
@@ -355,17 +436,10 @@ public class IconPackXML implements IconPack {
                                 eventType = xpp.next();
                                 continue;
                             }
-                            if (!drawables.containsKey(drawableName)) {
-                                XmlDrawableInfo drawableInfo = new SimpleDrawable(drawableName);
-                                drawables.put(drawableName, drawableInfo);
-                            }
 
                             componentName = parseComponentName(componentNameStr);
                             if (componentName != null) {
-                                Set<DrawableInfo> infoSet = drawablesByComponent.get(componentName);
-                                if (infoSet == null)
-                                    drawablesByComponent.put(componentName, infoSet = new HashSet<>(1));
-                                infoSet.add(drawables.get(drawableName));
+                                appFilter.addItem(componentName, drawableName);
                             } else {
                                 Log.w(TAG, "Drawable `" + drawableName + "` for component `null` not found");
                             }
@@ -386,16 +460,7 @@ public class IconPackXML implements IconPack {
 
                             componentName = parseComponentName(componentNameStr);
                             if (componentName != null && prefix != null) {
-                                if (!calendarDrawablesByPrefix.containsKey(prefix)) {
-                                    CalendarDrawable calendarDrawable = new CalendarDrawable(prefix);
-                                    calendarDrawablesByPrefix.put(prefix, calendarDrawable);
-                                }
-
-                                CalendarDrawable drawableInfo = calendarDrawablesByPrefix.get(prefix);
-                                Set<DrawableInfo> infoSet = drawablesByComponent.get(componentName);
-                                if (infoSet == null)
-                                    drawablesByComponent.put(componentName, infoSet = new HashSet<>(1));
-                                infoSet.add(drawableInfo);
+                                appFilter.addCalendar(componentName, prefix);
                             }
                         }
                     }
@@ -404,10 +469,12 @@ public class IconPackXML implements IconPack {
             }
         } catch (IOException | XmlPullParserException e) {
             Log.e(TAG, "Error parsing appfilter.xml ", e);
+            appFilter.complete = false;
         }
 
         long end = System.currentTimeMillis();
         Log.i(TAG, (end - start) + " milliseconds to parse appfilter.xml");
+        return appFilter;
     }
 
     private ComponentName parseComponentName(String str) {
@@ -0,0 +1,189 @@
+package fr.neamar.kiss.icons;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+import fr.neamar.kiss.normalizer.StringNormalizer;
+import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+
+/**
+ * Search index for icons of an icon pack.
+ * <p/>
+ * Names of all items are normalized once when the index is built. Every name is split into tokens
+ * (e.g. `com_google_maps` into `com`, `google`, `maps`) which are kept sorted for prefix lookup.
+ * Additionally a mask of contained characters is stored per item, so items that can't match a
+ * query are skipped before running fuzzy matching.
+ *
+ * @param <T> type of indexed items
+ */
+public class IconSearchIndex<T> {
+    private final List<T> items;
+    private final int[][] codePoints;
+    private final long[] charMasks;
+    // sorted tokens of all items, and the item each token belongs to
+    private final int[][] tokens;
+    private final int[] tokenItems;
+
+    /**
+     * @param items items to index, order is kept in search results
+     * @param text  text used for search
+     */
+    public IconSearchIndex(@NonNull List<T> items, @NonNull Function<T, CharSequence> text) {
+        this.items = new ArrayList<>(items);
+        this.codePoints = new int[items.size()][];
+        this.charMasks = new long[items.size()];
+
+        List<Token> tokenList = new ArrayList<>(items.size() * 2);
+        for (int i = 0; i < items.size(); i++) {
+            CharSequence itemText = text.apply(items.get(i));
+            int[] normalized = itemText != null ? StringNormalizer.normalizeWithResult(itemText, true).codePoints : new int[0];
+            codePoints[i] = normalized;
+            charMasks[i] = getCharMask(normalized);
+            for (int[] token : tokenize(normalized)) {
+                tokenList.add(new Token(token, i));
+            }
+        }
+        tokenList.sort((lhs, rhs) -> compare(lhs.codePoints, rhs.codePoints));
+
+        this.tokens = new int[tokenList.size()][];
+        this.tokenItems = new int[tokenList.size()];
+        for (int i = 0; i < tokenList.size(); i++) {
+            tokens[i] = tokenList.get(i).codePoints;
+            tokenItems[i] = tokenList.get(i).item;
+        }
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Search items.
+     * Items with tokens starting with every token of the query are returned first, followed by
+     * other items matched by fuzzy score.
+     *
+     * @param query      normalized query, lower case
+     * @param fuzzyScore fuzzy score for query, used if there are no prefix matches for an item
+     * @return matching items, all items if query is empty
+     */
+    @NonNull
+    public List<T> search(@NonNull int[] query, @NonNull FuzzyScore fuzzyScore) {
+        if (query.length == 0) {
+            return new ArrayList<>(items);
+        }
+
+        BitSet prefixMatches = null;
+        for (int[] queryToken : tokenize(query)) {
+            BitSet tokenMatches = findPrefix(queryToken);
+            if (prefixMatches == null) {
+                prefixMatches = tokenMatches;
+            } else {
+                prefixMatches.and(tokenMatches);
+            }
+        }
+        if (prefixMatches == null) {
+            prefixMatches = new BitSet();
+        }
+
+        List<T> result = new ArrayList<>();
+        for (int i = prefixMatches.nextSetBit(0); i >= 0; i = prefixMatches.nextSetBit(i + 1)) {
+            result.add(items.get(i));
+        }
+
+        // fuzzy fallback for items that contain all characters of the query
+        long queryMask = getCharMask(query);
+        for (int i = 0; i < items.size(); i++) {
+            if (!prefixMatches.get(i) && (charMasks[i] & queryMask) == queryMask && fuzzyScore.match(codePoints[i]).match) {
+                result.add(items.get(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return items with any token starting with given prefix
+     */
+    private BitSet findPrefix(int[] prefix) {
+        BitSet matches = new BitSet(items.size());
+        // find first token which is not smaller than prefix
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(tokens[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < tokens.length && startsWith(tokens[i], prefix); i++) {
+            matches.set(tokenItems[i]);
+        }
+        return matches;
+    }
+
+    private static List<int[]> tokenize(int[] text) {
+        List<int[]> result = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= text.length; i++) {
+            if (i == text.length || !Character.isLetterOrDigit(text[i])) {
+                if (i > start) {
+                    result.add(Arrays.copyOfRange(text, start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Mask of characters in text, each character sets one of 64 bits.
+     * An item can only match a query, if all bits of the query's mask are also set for the item.
+     */
+    private static long getCharMask(int[] text) {
+        long mask = 0;
+        for (int codePoint : text) {
+            if (Character.isLetterOrDigit(codePoint)) {
+                mask |= 1L << (codePoint & 63);
+            }
+        }
+        return mask;
+    }
+
+    private static int compare(int[] lhs, int[] rhs) {
+        int length = Math.min(lhs.length, rhs.length);
+        for (int i = 0; i < length; i++) {
+            if (lhs[i] != rhs[i]) {
+                return Integer.compare(lhs[i], rhs[i]);
+            }
+        }
+        return Integer.compare(lhs.length, rhs.length);
+    }
+
+    private static boolean startsWith(int[] text, int[] prefix) {
+        if (text.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (text[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Token {
+        private final int[] codePoints;
+        private final int item;
+
+        private Token(int[] codePoints, int item) {
+            this.codePoints = codePoints;
+            this.item = item;
+        }
+    }
+}
@@ -29,7 +29,7 @@ public class LoadAppPojos extends LoadPojos<AppPojo> {
     private final TagsHandler tagsHandler;
 
     public LoadAppPojos(Context context) {
-        super(context, "app://");
+        super(context, "app://", LoadScheduler.Stage.APPS);
         tagsHandler = KissApplication.getApplication(context).getDataHandler().getTagsHandler();
     }
 
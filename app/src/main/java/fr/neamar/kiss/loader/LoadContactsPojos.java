@@ -30,7 +30,7 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
     private static final String TAG = LoadContactsPojos.class.getSimpleName();
 
     public LoadContactsPojos(Context context) {
-        super(context, "contact://");
+        super(context, "contact://", LoadScheduler.Stage.CONTACTS);
     }
 
     @Override
@@ -65,7 +65,8 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
                         ContactsContract.Contacts.DISPLAY_NAME_ALTERNATIVE,
                         ContactsContract.Contacts.PHONETIC_NAME,
                         ContactsContract.Contacts.PHOTO_ID,
-                        ContactsContract.Contacts.PHOTO_URI}, null, null, null)) {
+                        ContactsContract.Contacts.PHOTO_URI,
+                        ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP}, null, null, null)) {
             if (contactCursor != null) {
                 if (contactCursor.getCount() > 0) {
                     int lookupIndex = contactCursor.getColumnIndex(ContactsContract.Contacts.LOOKUP_KEY);
@@ -75,6 +76,7 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
                     int phoneticNameIndex = contactCursor.getColumnIndex(ContactsContract.CommonDataKinds.Phone.PHONETIC_NAME);
                     int photoIdIndex = contactCursor.getColumnIndex(ContactsContract.Contacts.PHOTO_ID);
                     int photoUriIndex = contactCursor.getColumnIndex(ContactsContract.Contacts.PHOTO_URI);
+                    int lastUpdatedIndex = contactCursor.getColumnIndex(ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP);
                     while (contactCursor.moveToNext() && !isCancelled()) {
                         BasicContact basicContact = new BasicContact(
                                 contactCursor.getString(lookupIndex),
@@ -83,7 +85,8 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
                                 contactCursor.getString(displayNameAlternativeIndex),
                                 contactCursor.getString(phoneticNameIndex),
                                 contactCursor.getString(photoIdIndex),
-                                contactCursor.getString(photoUriIndex)
+                                contactCursor.getString(photoUriIndex),
+                                lastUpdatedIndex >= 0 ? contactCursor.getLong(lastUpdatedIndex) : 0
                         );
                         basicContacts.put(basicContact.getLookupKey(), basicContact);
                     }
@@ -205,6 +208,7 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
 
                             ContactsPojo contact = new ContactsPojo(pojoScheme + contactId + '/' + phone, lookupKey, contactId, icon, primary, starred);
                             setNames(contact, basicContact);
+                            contact.setPhotoKey(basicContact.getPhotoKey());
 
                             contact.setPhone(phone, false);
 
@@ -271,6 +275,7 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
 
                             ContactsPojo contact = new ContactsPojo(pojoScheme + contactId + '/' + MimeTypeUtils.getShortMimeType(mimeType) + '/' + id, lookupKey, contactId, icon, primary, basicRawContact.isStarred());
                             setNames(contact, basicContact);
+                            contact.setPhotoKey(basicContact.getPhotoKey());
 
                             ContactData contactData = new ContactData(mimeType, id);
                             contactData.setIdentifier(label);
@@ -375,9 +380,10 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
         private final String phoneticName;
         private final String photoId;
         private final String photoUri;
+        private final long lastUpdated;
         private String nickName;
 
-        protected BasicContact(String lookupKey, long contactId, String displayName, String displayNameAlternative, String phoneticName, String photoId, String photoUri) {
+        protected BasicContact(String lookupKey, long contactId, String displayName, String displayNameAlternative, String phoneticName, String photoId, String photoUri, long lastUpdated) {
             this.lookupKey = lookupKey;
             this.contactId = contactId;
             this.displayName = displayName;
@@ -385,6 +391,7 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
             this.phoneticName = phoneticName;
             this.photoId = photoId;
             this.photoUri = photoUri;
+            this.lastUpdated = lastUpdated;
         }
 
         public String getLookupKey() {
@@ -426,6 +433,16 @@ public class LoadContactsPojos extends LoadPojos<ContactsPojo> {
             }
             return null;
         }
+
+        /**
+         * @return version of contact photo, null if there is no photo
+         */
+        public String getPhotoKey() {
+            if (photoId != null) {
+                return photoId + "-" + lastUpdated;
+            }
+            return null;
+        }
     }
 
     /**
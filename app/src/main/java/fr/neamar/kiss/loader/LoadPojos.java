@@ -13,12 +13,14 @@ public abstract class LoadPojos<T extends Pojo> extends AsyncTask<Void, Void, Li
 
     final WeakReference<Context> context;
     final String pojoScheme;
+    private final LoadScheduler.Stage stage;
     private WeakReference<Provider<T>> providerReference;
 
-    LoadPojos(Context context, String pojoScheme) {
+    LoadPojos(Context context, String pojoScheme, LoadScheduler.Stage stage) {
         super();
         this.context = new WeakReference<>(context);
         this.pojoScheme = pojoScheme;
+        this.stage = stage;
     }
 
     public void setProvider(Provider<T> provider) {
@@ -29,6 +31,13 @@ public abstract class LoadPojos<T extends Pojo> extends AsyncTask<Void, Void, Li
         return pojoScheme;
     }
 
+    /**
+     * @return stage used to prioritize this loader with {@link LoadScheduler}
+     */
+    public LoadScheduler.Stage getStage() {
+        return stage;
+    }
+
     @Override
     protected void onPostExecute(List<T> result) {
         super.onPostExecute(result);
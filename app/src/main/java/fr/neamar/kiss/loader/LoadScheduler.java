@@ -0,0 +1,186 @@
+package fr.neamar.kiss.loader;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.neamar.kiss.utils.Log;
+
+/**
+ * Runs {@link LoadPojos} of all providers on a dedicated executor with a single worker.
+ * <p/>
+ * Pending loaders are started by priority of their {@link Stage}: apps are loaded first,
+ * then shortcuts (which are needed for favorites), contacts last.
+ * This way apps don't need to compete with contacts and everything else during cold start.
+ * A single worker is required for this, because a thread pool hands tasks to new threads
+ * without queueing them until all its core threads are started.
+ * Timings are recorded for every stage.
+ */
+public class LoadScheduler {
+    private static final String TAG = LoadScheduler.class.getSimpleName();
+
+    /**
+     * Stages of provider loading, in order of priority
+     */
+    public enum Stage {
+        APPS,
+        SHORTCUTS,
+        CONTACTS
+    }
+
+    private static LoadScheduler instance = null;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Stage, StageTiming> timings = new EnumMap<>(Stage.class);
+
+    private LoadScheduler() {
+        this(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }, "LoadScheduler #" + count.getAndIncrement());
+            }
+        });
+    }
+
+    LoadScheduler(@NonNull ThreadFactory threadFactory) {
+        executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized LoadScheduler getInstance() {
+        if (instance == null) {
+            instance = new LoadScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * @param stage stage of tasks started with this executor
+     * @return executor which runs tasks with priority of given stage
+     */
+    public Executor getExecutor(@NonNull Stage stage) {
+        return command -> {
+            getTiming(stage).queued();
+            executor.execute(new PrioritizedTask(stage, sequence.getAndIncrement(), command));
+        };
+    }
+
+    /**
+     * Record end of loading for given stage
+     *
+     * @param stage stage which is loaded
+     */
+    public void onLoaded(@NonNull Stage stage) {
+        StageTiming timing = getTiming(stage);
+        timing.loaded();
+        Log.i(TAG, "Stage " + stage + " loaded: " + timing);
+    }
+
+    /**
+     * @return timings of all stages seen so far
+     */
+    @NonNull
+    public Map<Stage, StageTiming> getTimings() {
+        synchronized (timings) {
+            return new EnumMap<>(timings);
+        }
+    }
+
+    private StageTiming getTiming(Stage stage) {
+        synchronized (timings) {
+            StageTiming timing = timings.get(stage);
+            if (timing == null) {
+                timing = new StageTiming();
+                timings.put(stage, timing);
+            }
+            return timing;
+        }
+    }
+
+    /**
+     * Timing of last load of one stage
+     */
+    public static class StageTiming {
+        private long queued;
+        private long started;
+        private long loaded;
+
+        synchronized void queued() {
+            queued = System.currentTimeMillis();
+            started = 0;
+            loaded = 0;
+        }
+
+        synchronized void started() {
+            started = System.currentTimeMillis();
+        }
+
+        synchronized void loaded() {
+            loaded = System.currentTimeMillis();
+        }
+
+        /**
+         * @return time in ms waiting for a free thread, -1 if not started yet
+         */
+        public synchronized long getWaitTime() {
+            return started > 0 ? started - queued : -1;
+        }
+
+        /**
+         * @return time in ms from start of loading until data was available, -1 if not loaded yet
+         */
+        public synchronized long getLoadTime() {
+            return started > 0 && loaded >= started ? loaded - started : -1;
+        }
+
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            return "waited " + getWaitTime() + "ms, loaded in " + getLoadTime() + "ms";
+        }
+    }
+
+    private class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final Stage stage;
+        private final long sequence;
+        private final Runnable command;
+
+        private PrioritizedTask(Stage stage, long sequence, Runnable command) {
+            this.stage = stage;
+            this.sequence = sequence;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            getTiming(stage).started();
+            command.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int result = stage.compareTo(other.stage);
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+    }
+}
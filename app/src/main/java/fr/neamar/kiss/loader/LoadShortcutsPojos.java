@@ -25,7 +25,7 @@ import fr.neamar.kiss.utils.UserHandle;
 public class LoadShortcutsPojos extends LoadPojos<ShortcutPojo> {
 
     public LoadShortcutsPojos(Context context) {
-        super(context, ShortcutPojo.SCHEME);
+        super(context, ShortcutPojo.SCHEME, LoadScheduler.Stage.SHORTCUTS);
     }
 
     @Override
@@ -0,0 +1,175 @@
+package fr.neamar.kiss.normalizer;
+
+import java.util.Arrays;
+
+import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchInfo;
+
+/**
+ * Packs code points of many {@link StringNormalizer.Result} into one shared array.
+ * <p/>
+ * Every result normally holds two int arrays of its own. For large collections (e.g. contacts)
+ * which are only matched against queries, the per-object and per-array overhead outweighs the
+ * payload, so this arena appends the code points of each result to one shared array and only
+ * keeps an offset table to find them again. Entries are matched in place with
+ * {@link #match(int, FuzzyScore)}, nothing is copied.
+ * <p/>
+ * Mapped positions are not stored, they are only needed for highlighting and can be computed
+ * again by normalizing the original string.
+ */
+public class CodePointArena {
+    /**
+     * Handle returned for null input
+     */
+    public static final int NONE = -1;
+
+    // Rough sizes used for heap estimations, based on a 64 bit VM with compressed references
+    private static final int OBJECT_HEADER_SIZE = 12;
+    private static final int ARRAY_HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 4;
+
+    private int[] codePoints;
+    private int[] offsets;
+    private int size = 0;
+    private int length = 0;
+
+    public CodePointArena() {
+        this(16, 256);
+    }
+
+    /**
+     * @param entryCapacity     initial number of results that can be stored without resizing
+     * @param codePointCapacity initial number of code points that can be stored without resizing
+     */
+    public CodePointArena(int entryCapacity, int codePointCapacity) {
+        this.codePoints = new int[Math.max(codePointCapacity, 1)];
+        this.offsets = new int[Math.max(entryCapacity, 1) + 1];
+    }
+
+    /**
+     * Append code points of result to this arena
+     *
+     * @param result normalized string, may be null
+     * @return handle to access this result later, {@link #NONE} if result was null
+     */
+    public int add(StringNormalizer.Result result) {
+        if (result == null) {
+            return NONE;
+        }
+
+        int resultLength = result.codePoints.length;
+        if (length + resultLength > codePoints.length) {
+            codePoints = Arrays.copyOf(codePoints, Math.max(length + resultLength, codePoints.length * 3 / 2 + 1));
+        }
+        if (size + 1 >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 3 / 2 + 1);
+        }
+
+        System.arraycopy(result.codePoints, 0, codePoints, length, resultLength);
+        offsets[size] = length;
+        length += resultLength;
+        size += 1;
+        offsets[size] = length;
+
+        return size - 1;
+    }
+
+    /**
+     * Release unused capacity, should be called once all results were added.
+     */
+    public void trimToSize() {
+        codePoints = Arrays.copyOf(codePoints, length);
+        offsets = Arrays.copyOf(offsets, size + 1);
+    }
+
+    /**
+     * @return number of results stored in this arena
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param handle handle returned by {@link #add(StringNormalizer.Result)}
+     * @return number of code points of the result
+     */
+    public int length(int handle) {
+        return offsets[handle + 1] - offsets[handle];
+    }
+
+    /**
+     * Copy code points of one result.
+     * Use {@link #match(int, FuzzyScore)} for matching, it doesn't need a copy.
+     *
+     * @param handle handle returned by {@link #add(StringNormalizer.Result)}
+     * @return code points, null for {@link #NONE}
+     */
+    public int[] getCodePoints(int handle) {
+        if (handle == NONE) {
+            return null;
+        }
+        return Arrays.copyOfRange(codePoints, offsets[handle], offsets[handle + 1]);
+    }
+
+    /**
+     * Create string of one result directly from code points in arena, without normalizing again.
+     *
+     * @param handle handle returned by {@link #add(StringNormalizer.Result)}
+     * @return same string as {@link StringNormalizer.Result#toString()}, null for {@link #NONE}
+     */
+    public String getString(int handle) {
+        if (handle == NONE) {
+            return null;
+        }
+        return new String(codePoints, offsets[handle], offsets[handle + 1] - offsets[handle]);
+    }
+
+    /**
+     * Match code points of one result in place.
+     *
+     * @param handle     handle returned by {@link #add(StringNormalizer.Result)}
+     * @param fuzzyScore query to match
+     * @return match info of fuzzyScore, null for {@link #NONE}
+     */
+    public MatchInfo match(int handle, FuzzyScore fuzzyScore) {
+        if (handle == NONE) {
+            return null;
+        }
+        return fuzzyScore.match(codePoints, offsets[handle], offsets[handle + 1] - offsets[handle]);
+    }
+
+    /**
+     * @param handle handle returned by {@link #add(StringNormalizer.Result)}
+     * @param other  normalized string to compare with
+     * @return true, if code points of both are the same
+     */
+    public boolean equalsAt(int handle, StringNormalizer.Result other) {
+        if (handle == NONE || other == null) {
+            return handle == NONE && other == null;
+        }
+        int start = offsets[handle];
+        int end = offsets[handle + 1];
+        if (end - start != other.codePoints.length) {
+            return false;
+        }
+        for (int i = start; i < end; i += 1) {
+            if (codePoints[i] != other.codePoints[i - start]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return estimated heap size of this arena in bytes
+     */
+    public long estimateHeapSize() {
+        return OBJECT_HEADER_SIZE + 2 * REFERENCE_SIZE + 2 * 4
+                + arraySize(codePoints.length) + arraySize(offsets.length);
+    }
+
+    private static long arraySize(int intCount) {
+        // arrays are aligned to 8 bytes
+        return ((ARRAY_HEADER_SIZE + 4L * intCount + 7) / 8) * 8;
+    }
+}
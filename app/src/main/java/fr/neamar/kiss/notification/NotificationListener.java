@@ -3,7 +3,6 @@ package fr.neamar.kiss.notification;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.os.Build;
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
@@ -21,14 +20,13 @@ import fr.neamar.kiss.utils.UserHandle;
 
 public class NotificationListener extends NotificationListenerService {
     public static final String TAG = NotificationListener.class.getSimpleName();
-    public static final String NOTIFICATION_PREFERENCES_NAME = "notifications";
 
-    private SharedPreferences prefs;
+    private NotificationStore store;
 
     @Override
     public void onCreate() {
         super.onCreate();
-        prefs = getBaseContext().getSharedPreferences(NOTIFICATION_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        store = KissApplication.getApplication(this).getNotificationStore();
     }
 
     @Override
@@ -57,24 +55,10 @@ public class NotificationListener extends NotificationListenerService {
             notificationsByPackage.get(packageKey).add(Integer.toString(sbn.getId()));
         }
 
-        // And synchronise this map with our SharedPreferences
-        // (an easier option would have been to .clear() the SharedPreferences,
-        // but then the listeners on SharedPreferences are not properly triggered)
-        SharedPreferences.Editor editor = prefs.edit();
-        // allKeys contains all the package names either in preferences or in the current notifications
-        Set<String> allKeys = new HashSet<>(prefs.getAll().keySet());
-        allKeys.addAll(notificationsByPackage.keySet());
-        for (String packageKey : allKeys) {
-            if (notificationsByPackage.containsKey(packageKey)) {
-                editor.putStringSet(packageKey, notificationsByPackage.get(packageKey));
-            } else {
-                editor.remove(packageKey);
-            }
-        }
+        // And synchronise this map with our store, only changed packages are reported
+        store.setNotifications(notificationsByPackage);
 
-        editor.apply();
-
-        Log.v(TAG, "Refreshed all notifications for " + allKeys);
+        Log.v(TAG, "Refreshed all notifications for " + notificationsByPackage.keySet());
     }
 
     @Override
@@ -82,17 +66,9 @@ public class NotificationListener extends NotificationListenerService {
         Log.i(TAG, "Notification listener disconnected");
 
         // Clean up everything we have in memory to ensure we don't keep displaying trailing dots.
-        // We don't use .clear() to ensure listeners are properly called.
-        SharedPreferences.Editor editor = prefs.edit();
-        Set<String> packages = prefs.getAll().keySet();
+        store.clear();
 
-        for (String packageKey : packages) {
-            editor.remove(packageKey);
-        }
-
-        editor.apply();
-
-        Log.v(TAG, "Removed all notifications for " + packages);
+        Log.v(TAG, "Removed all notifications");
 
         super.onListenerDisconnected();
     }
@@ -111,13 +87,8 @@ public class NotificationListener extends NotificationListenerService {
         }
 
         String packageKey = getPackageKey(sbn);
-        Set<String> currentNotifications = getCurrentNotificationsForPackage(packageKey);
-        if (currentNotifications.add(Integer.toString(sbn.getId()))) {
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putStringSet(packageKey, currentNotifications);
-            editor.apply();
-
-            Log.v(TAG, "Added notification for " + packageKey + ": " + currentNotifications);
+        if (store.addNotification(packageKey, Integer.toString(sbn.getId()))) {
+            Log.v(TAG, "Added notification for " + packageKey + ": " + store.getNotificationCount(packageKey));
 
             addNotificationToHistory(sbn);
         }
@@ -142,20 +113,8 @@ public class NotificationListener extends NotificationListenerService {
         }
 
         String packageKey = getPackageKey(sbn);
-
-        Set<String> currentNotifications = getCurrentNotificationsForPackage(packageKey);
-
-        if (currentNotifications.remove(Integer.toString(sbn.getId()))) {
-            SharedPreferences.Editor editor = prefs.edit();
-            if (currentNotifications.isEmpty()) {
-                // Clean up!
-                editor.remove(packageKey);
-            } else {
-                editor.putStringSet(packageKey, currentNotifications);
-            }
-            editor.apply();
-
-            Log.v(TAG, "Removed notification for " + packageKey + ": " + currentNotifications);
+        if (store.removeNotification(packageKey, Integer.toString(sbn.getId()))) {
+            Log.v(TAG, "Removed notification for " + packageKey + ": " + store.getNotificationCount(packageKey));
         }
     }
 
@@ -163,17 +122,6 @@ public class NotificationListener extends NotificationListenerService {
         return sbn.getUser().hashCode() + "|" + sbn.getPackageName();
     }
 
-    public Set<String> getCurrentNotificationsForPackage(String packageName) {
-        Set<String> currentNotifications = prefs.getStringSet(packageName, null);
-        if (currentNotifications == null) {
-            return new HashSet<>();
-        } else {
-            // The set returned by getStringSet() should NOT be modified
-            // see https://developer.android.com/reference/android/content/SharedPreferences.html#getStringSet(java.lang.String,%2520java.util.Set%3Cjava.lang.String%3E)
-            return new HashSet<>(currentNotifications);
-        }
-    }
-
     /**
      * Check for trivial notifications.
      * <p>
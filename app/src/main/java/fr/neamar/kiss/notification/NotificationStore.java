@@ -0,0 +1,188 @@
+package fr.neamar.kiss.notification;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory state of notifications, shared by {@link NotificationListener} and the UI.
+ * <p/>
+ * Changes are delivered to listeners on the main thread, coalesced per package, so a burst of
+ * notifications from one app updates its notification dot only once.
+ * State is written to disk lazily, it's only needed to show dots after a process restart until
+ * the notification listener is connected again.
+ */
+public class NotificationStore {
+    private static final String NOTIFICATION_PREFERENCES_NAME = "notifications";
+
+    /**
+     * Changes within this time are delivered as one event
+     */
+    private static final long DISPATCH_DELAY_MS = 50;
+    /**
+     * State is written to disk after it didn't change for this time
+     */
+    private static final long PERSIST_DELAY_MS = 10000;
+
+    public interface OnNotificationsChangedListener {
+        /**
+         * Called on main thread.
+         *
+         * @param packageKeys keys of all packages whose notifications changed since last call
+         */
+        void onNotificationsChanged(@NonNull Set<String> packageKeys);
+    }
+
+    private final SharedPreferences prefs;
+    private final Map<String, Set<String>> notificationsByPackage = new ConcurrentHashMap<>();
+    private final Set<String> changedPackages = new HashSet<>();
+    private final List<OnNotificationsChangedListener> listeners = new ArrayList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean dispatchScheduled = false;
+
+    private final Runnable dispatch = this::dispatchChanges;
+    private final Runnable persist = this::persist;
+
+    public NotificationStore(@NonNull Context context) {
+        prefs = context.getSharedPreferences(NOTIFICATION_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof Set) {
+                Set<String> ids = new HashSet<>();
+                for (Object id : (Set<?>) entry.getValue()) {
+                    ids.add(String.valueOf(id));
+                }
+                notificationsByPackage.put(entry.getKey(), Collections.unmodifiableSet(ids));
+            }
+        }
+    }
+
+    public boolean hasNotifications(@NonNull String packageKey) {
+        return notificationsByPackage.containsKey(packageKey);
+    }
+
+    public int getNotificationCount(@NonNull String packageKey) {
+        Set<String> ids = notificationsByPackage.get(packageKey);
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * @return true if notification wasn't known before
+     */
+    public synchronized boolean addNotification(@NonNull String packageKey, @NonNull String id) {
+        Set<String> ids = notificationsByPackage.get(packageKey);
+        Set<String> newIds = ids == null ? new HashSet<>() : new HashSet<>(ids);
+        if (!newIds.add(id)) {
+            return false;
+        }
+        notificationsByPackage.put(packageKey, Collections.unmodifiableSet(newIds));
+        onChanged(packageKey);
+        return true;
+    }
+
+    /**
+     * @return true if notification was known before
+     */
+    public synchronized boolean removeNotification(@NonNull String packageKey, @NonNull String id) {
+        Set<String> ids = notificationsByPackage.get(packageKey);
+        if (ids == null || !ids.contains(id)) {
+            return false;
+        }
+        Set<String> newIds = new HashSet<>(ids);
+        newIds.remove(id);
+        if (newIds.isEmpty()) {
+            notificationsByPackage.remove(packageKey);
+        } else {
+            notificationsByPackage.put(packageKey, Collections.unmodifiableSet(newIds));
+        }
+        onChanged(packageKey);
+        return true;
+    }
+
+    /**
+     * Replace all notifications, only packages whose notifications differ are reported as changed.
+     *
+     * @param newNotificationsByPackage ids of notifications by package key
+     */
+    public synchronized void setNotifications(@NonNull Map<String, Set<String>> newNotificationsByPackage) {
+        Set<String> allKeys = new HashSet<>(notificationsByPackage.keySet());
+        allKeys.addAll(newNotificationsByPackage.keySet());
+        for (String packageKey : allKeys) {
+            Set<String> newIds = newNotificationsByPackage.get(packageKey);
+            if (newIds == null || newIds.isEmpty()) {
+                if (notificationsByPackage.remove(packageKey) != null) {
+                    onChanged(packageKey);
+                }
+            } else if (!newIds.equals(notificationsByPackage.get(packageKey))) {
+                notificationsByPackage.put(packageKey, Collections.unmodifiableSet(new HashSet<>(newIds)));
+                onChanged(packageKey);
+            }
+        }
+    }
+
+    /**
+     * Remove all notifications, e.g. when access to notifications was revoked.
+     */
+    public void clear() {
+        setNotifications(new HashMap<>());
+    }
+
+    /**
+     * Must be called on main thread.
+     */
+    public void addListener(@NonNull OnNotificationsChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Must be called on main thread.
+     */
+    public void removeListener(@NonNull OnNotificationsChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void onChanged(String packageKey) {
+        changedPackages.add(packageKey);
+        if (!dispatchScheduled) {
+            dispatchScheduled = true;
+            handler.postDelayed(dispatch, DISPATCH_DELAY_MS);
+        }
+        handler.removeCallbacks(persist);
+        handler.postDelayed(persist, PERSIST_DELAY_MS);
+    }
+
+    private void dispatchChanges() {
+        Set<String> packageKeys;
+        synchronized (this) {
+            dispatchScheduled = false;
+            packageKeys = new HashSet<>(changedPackages);
+            changedPackages.clear();
+        }
+        if (packageKeys.isEmpty()) {
+            return;
+        }
+        for (OnNotificationsChangedListener listener : new ArrayList<>(listeners)) {
+            listener.onNotificationsChanged(packageKeys);
+        }
+    }
+
+    private void persist() {
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.clear();
+        for (Map.Entry<String, Set<String>> entry : notificationsByPackage.entrySet()) {
+            editor.putStringSet(entry.getKey(), entry.getValue());
+        }
+        editor.apply();
+    }
+}
@@ -18,6 +18,8 @@ public final class ContactsPojo extends Pojo {
     private boolean homeNumber;
 
     public final Uri icon;
+    // version of icon, see getPhotoKey()
+    private String photoKey = null;
 
     // Is this a primary phone?
     public final boolean primary;
@@ -25,12 +27,17 @@ public final class ContactsPojo extends Pojo {
     // Is this contact starred ?
     public final boolean starred;
 
+    // Secondary names are only normalized when a search first needs them,
+    // see getNormalizedNickname(), getNormalizedNameAlternative() and getNormalizedPhoneticName()
     private String nickname = null;
     // nickname without special characters
-    public StringNormalizer.Result normalizedNickname = null;
+    private volatile StringNormalizer.Result normalizedNickname = null;
 
-    public StringNormalizer.Result normalizedNameAlternative = null;
-    public StringNormalizer.Result normalizedPhoneticName = null;
+    private String nameAlternative = null;
+    private volatile StringNormalizer.Result normalizedNameAlternative = null;
+
+    private String phoneticName = null;
+    private volatile StringNormalizer.Result normalizedPhoneticName = null;
 
     private ContactData contactData;
 
@@ -43,6 +50,17 @@ public final class ContactsPojo extends Pojo {
         this.starred = starred;
     }
 
+    /**
+     * @return PHOTO_ID and last update of contact, changes whenever the photo changes. Null if unknown.
+     */
+    public String getPhotoKey() {
+        return photoKey;
+    }
+
+    public void setPhotoKey(String photoKey) {
+        this.photoKey = photoKey;
+    }
+
     public String getNickname() {
         return nickname;
     }
@@ -51,11 +69,23 @@ public final class ContactsPojo extends Pojo {
         if (!TextUtils.isEmpty(nickname)) {
             // Set the actual user-friendly name
             this.nickname = nickname;
-            this.normalizedNickname = StringNormalizer.normalizeWithResult(this.nickname, false);
         } else {
             this.nickname = null;
-            this.normalizedNickname = null;
         }
+        this.normalizedNickname = null;
+    }
+
+    /**
+     * @return normalized nickname, generated on first call
+     */
+    public StringNormalizer.Result getNormalizedNickname() {
+        StringNormalizer.Result result = normalizedNickname;
+        if (result == null && nickname != null) {
+            // normalization always gives the same result, so concurrent calls are fine
+            result = StringNormalizer.normalizeWithResult(nickname, false);
+            normalizedNickname = result;
+        }
+        return result;
     }
 
     public void setPhone(String phone, boolean homeNumber) {
@@ -86,20 +116,63 @@ public final class ContactsPojo extends Pojo {
         return contactId;
     }
 
+    public String getNameAlternative() {
+        return nameAlternative;
+    }
+
     public void setNameAlternative(String nameAlternative) {
         if (!TextUtils.isEmpty(nameAlternative)) {
-            this.normalizedNameAlternative = StringNormalizer.normalizeWithResult(nameAlternative, false);
+            this.nameAlternative = nameAlternative;
         } else {
-            this.normalizedNameAlternative = null;
+            this.nameAlternative = null;
+        }
+        this.normalizedNameAlternative = null;
+    }
+
+    /**
+     * @return normalized alternative name, generated on first call
+     */
+    public StringNormalizer.Result getNormalizedNameAlternative() {
+        StringNormalizer.Result result = normalizedNameAlternative;
+        if (result == null && nameAlternative != null) {
+            result = StringNormalizer.normalizeWithResult(nameAlternative, false);
+            normalizedNameAlternative = result;
         }
+        return result;
+    }
+
+    public String getPhoneticName() {
+        return phoneticName;
     }
 
     public void setPhoneticName(String phoneticName) {
         if (!TextUtils.isEmpty(phoneticName)) {
-            this.normalizedPhoneticName = StringNormalizer.normalizeWithResult(phoneticName, false);
+            this.phoneticName = phoneticName;
         } else {
-            this.normalizedPhoneticName = null;
+            this.phoneticName = null;
         }
+        this.normalizedPhoneticName = null;
+    }
+
+    /**
+     * @return normalized phonetic name, generated on first call
+     */
+    public StringNormalizer.Result getNormalizedPhoneticName() {
+        StringNormalizer.Result result = normalizedPhoneticName;
+        if (result == null && phoneticName != null) {
+            result = StringNormalizer.normalizeWithResult(phoneticName, false);
+            normalizedPhoneticName = result;
+        }
+        return result;
+    }
+
+    /**
+     * Normalize all secondary names now, so first search doesn't need to.
+     */
+    public void normalizeSecondaryNames() {
+        getNormalizedNickname();
+        getNormalizedNameAlternative();
+        getNormalizedPhoneticName();
     }
 
     /**
@@ -6,7 +6,6 @@ import android.content.ActivityNotFoundException;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.LauncherApps;
 import android.graphics.Rect;
@@ -35,13 +34,13 @@ import fr.neamar.kiss.R;
 import fr.neamar.kiss.UIColors;
 import fr.neamar.kiss.adapter.RecordAdapter;
 import fr.neamar.kiss.icons.IconPack;
-import fr.neamar.kiss.notification.NotificationListener;
+import fr.neamar.kiss.notification.NotificationStore;
 import fr.neamar.kiss.pojo.AppPojo;
 import fr.neamar.kiss.ui.ListPopup;
 import fr.neamar.kiss.utils.DrawableUtils;
 import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.PackageManagerUtils;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class AppResult extends ResultWithTags<AppPojo> {
 
@@ -54,17 +53,12 @@ public class AppResult extends ResultWithTags<AppPojo> {
 
     @NonNull
     @Override
-    public View display(final Context context, View view, @NonNull ViewGroup parent, FuzzyScore fuzzyScore) {
+    public View display(final Context context, View view, @NonNull ViewGroup parent, MatchHighlighter highlighter) {
         if (view == null) {
             view = inflateFromId(context, R.layout.item_app, parent);
         }
 
-        TextView appName = view.findViewById(R.id.item_app_name);
-
-        displayHighlighted(pojo.normalizedName, pojo.getName(), fuzzyScore, appName, context);
-
-        TextView tagsView = view.findViewById(R.id.item_app_tag);
-        displayTags(context, fuzzyScore, tagsView);
+        updateHighlights(context, view, highlighter);
 
         final ImageView appIcon = view.findViewById(R.id.item_app_icon);
         if (!isHideIcons(context)) {
@@ -78,6 +72,21 @@ public class AppResult extends ResultWithTags<AppPojo> {
         return view;
     }
 
+    @Override
+    protected boolean updateHighlights(Context context, @NonNull View view, MatchHighlighter highlighter) {
+        TextView appName = view.findViewById(R.id.item_app_name);
+        displayHighlighted(pojo.normalizedName, pojo.getName(), highlighter, appName, context);
+
+        TextView tagsView = view.findViewById(R.id.item_app_tag);
+        displayTags(context, highlighter, tagsView);
+
+        // notifications may have changed while listener was paused, display row again if dot is outdated
+        NotificationStore notificationStore = KissApplication.getApplication(context).getNotificationStore();
+        ImageView notificationView = view.findViewById(R.id.item_notification_dot);
+        boolean dotVisible = notificationView.getVisibility() == View.VISIBLE;
+        return dotVisible == notificationStore.hasNotifications(getPackageKey());
+    }
+
     @Override
     public void inflateFavorite(@NonNull Context context, @NonNull View favoriteView) {
         super.inflateFavorite(context, favoriteView);
@@ -87,9 +96,9 @@ public class AppResult extends ResultWithTags<AppPojo> {
     private void displayNotificationDot(Context context, View view, boolean isFavorite) {
         String packageKey = getPackageKey();
 
-        SharedPreferences notificationPrefs = context.getSharedPreferences(NotificationListener.NOTIFICATION_PREFERENCES_NAME, Context.MODE_PRIVATE);
+        NotificationStore notificationStore = KissApplication.getApplication(context).getNotificationStore();
         ImageView notificationView = view.findViewById(R.id.item_notification_dot);
-        notificationView.setVisibility(notificationPrefs.contains(packageKey) ? View.VISIBLE : View.GONE);
+        notificationView.setVisibility(notificationStore.hasNotifications(packageKey) ? View.VISIBLE : View.GONE);
         notificationView.setTag(packageKey);
         int dotColor = UIColors.getNotificationDotColor(context, isFavorite);
         notificationView.setColorFilter(dotColor);
@@ -5,6 +5,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.provider.ContactsContract;
@@ -19,9 +21,6 @@ import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.preference.PreferenceManager;
 
-import java.io.IOException;
-import java.io.InputStream;
-
 import fr.neamar.kiss.IconsHandler;
 import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.R;
@@ -33,10 +32,10 @@ import fr.neamar.kiss.ui.ImprovedQuickContactBadge;
 import fr.neamar.kiss.ui.ListPopup;
 import fr.neamar.kiss.ui.ShapedContactBadge;
 import fr.neamar.kiss.utils.ClipboardUtils;
-import fr.neamar.kiss.utils.Log;
+import fr.neamar.kiss.utils.ContactPhotoLoader;
 import fr.neamar.kiss.utils.MimeTypeUtils;
 import fr.neamar.kiss.utils.PackageManagerUtils;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class ContactsResult extends CallResult<ContactsPojo> {
 
@@ -52,36 +51,12 @@ public class ContactsResult extends CallResult<ContactsPojo> {
 
     @NonNull
     @Override
-    public View display(Context context, View view, @NonNull ViewGroup parent, FuzzyScore fuzzyScore) {
+    public View display(Context context, View view, @NonNull ViewGroup parent, MatchHighlighter highlighter) {
         if (view == null)
             view = inflateFromId(context, R.layout.item_contact, parent);
 
-        // Contact name
-        TextView contactName = view.findViewById(R.id.item_contact_name);
-        if (!TextUtils.isEmpty(pojo.getName())) {
-            displayHighlighted(pojo.normalizedName, pojo.getName(), fuzzyScore, contactName, context);
-        }
-
-        // Contact phone or IM identifier
-        TextView contactPhone = view.findViewById(R.id.item_contact_phone);
-        if (pojo.getContactData() != null && !TextUtils.isEmpty(pojo.getContactData().getIdentifier())) {
-            contactPhone.setVisibility(View.VISIBLE);
-            displayHighlighted(pojo.getContactData().getNormalizedIdentifier(), pojo.getContactData().getIdentifier(), fuzzyScore, contactPhone, context);
-        } else if (!TextUtils.isEmpty(pojo.phone)) {
-            contactPhone.setVisibility(View.VISIBLE);
-            displayHighlighted(pojo.normalizedPhone, pojo.phone, fuzzyScore, contactPhone, context);
-        } else {
-            contactPhone.setVisibility(View.GONE);
-        }
-
-        // Contact nickname
-        TextView contactNickname = view.findViewById(R.id.item_contact_nickname);
-        if (TextUtils.isEmpty(pojo.getNickname())) {
-            contactNickname.setVisibility(View.GONE);
-        } else {
-            contactNickname.setVisibility(View.VISIBLE);
-            displayHighlighted(pojo.normalizedNickname, pojo.getNickname(), fuzzyScore, contactNickname, context);
-        }
+        // Contact name, phone or IM identifier and nickname
+        updateHighlights(context, view, highlighter);
 
         // Contact photo
         ImprovedQuickContactBadge contactIcon = view
@@ -152,6 +127,37 @@ public class ContactsResult extends CallResult<ContactsPojo> {
         return view;
     }
 
+    @Override
+    protected boolean updateHighlights(Context context, @NonNull View view, MatchHighlighter highlighter) {
+        // Contact name
+        TextView contactName = view.findViewById(R.id.item_contact_name);
+        if (!TextUtils.isEmpty(pojo.getName())) {
+            displayHighlighted(pojo.normalizedName, pojo.getName(), highlighter, contactName, context);
+        }
+
+        // Contact phone or IM identifier
+        TextView contactPhone = view.findViewById(R.id.item_contact_phone);
+        if (pojo.getContactData() != null && !TextUtils.isEmpty(pojo.getContactData().getIdentifier())) {
+            contactPhone.setVisibility(View.VISIBLE);
+            displayHighlighted(pojo.getContactData().getNormalizedIdentifier(), pojo.getContactData().getIdentifier(), highlighter, contactPhone, context);
+        } else if (!TextUtils.isEmpty(pojo.phone)) {
+            contactPhone.setVisibility(View.VISIBLE);
+            displayHighlighted(pojo.normalizedPhone, pojo.phone, highlighter, contactPhone, context);
+        } else {
+            contactPhone.setVisibility(View.GONE);
+        }
+
+        // Contact nickname
+        TextView contactNickname = view.findViewById(R.id.item_contact_nickname);
+        if (TextUtils.isEmpty(pojo.getNickname())) {
+            contactNickname.setVisibility(View.GONE);
+        } else {
+            contactNickname.setVisibility(View.VISIBLE);
+            displayHighlighted(pojo.getNormalizedNickname(), pojo.getNickname(), highlighter, contactNickname, context);
+        }
+        return true;
+    }
+
     private Drawable getAppDrawable(Context context) {
         if (appDrawable == null) {
             synchronized (this) {
@@ -208,11 +214,10 @@ public class ContactsResult extends CallResult<ContactsPojo> {
             synchronized (this) {
                 if (icon == null) {
                     if (pojo.icon != null) {
-                        try (InputStream inputStream = context.getContentResolver()
-                                .openInputStream(pojo.icon)) {
-                            icon = Drawable.createFromStream(inputStream, null);
-                        } catch (IOException e) {
-                            Log.d(TAG, "Unable to load contact icon", e);
+                        ContactPhotoLoader photoLoader = KissApplication.getApplication(context).getContactPhotoLoader();
+                        Bitmap photo = photoLoader.load(context, pojo.icon, pojo.getPhotoKey());
+                        if (photo != null) {
+                            icon = new BitmapDrawable(context.getResources(), photo);
                         }
                     }
 
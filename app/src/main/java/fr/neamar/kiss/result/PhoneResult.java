@@ -5,7 +5,6 @@ import android.content.Intent;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.provider.ContactsContract;
-import android.util.Pair;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
@@ -13,14 +12,12 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 
-import java.util.Collections;
-
 import fr.neamar.kiss.R;
 import fr.neamar.kiss.adapter.RecordAdapter;
 import fr.neamar.kiss.icons.IconPack;
 import fr.neamar.kiss.pojo.PhonePojo;
 import fr.neamar.kiss.ui.ListPopup;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class PhoneResult extends CallResult<PhonePojo> {
 
@@ -30,7 +27,7 @@ public class PhoneResult extends CallResult<PhonePojo> {
 
     @NonNull
     @Override
-    public View display(Context context, View view, @NonNull ViewGroup parent, FuzzyScore fuzzyScore) {
+    public View display(Context context, View view, @NonNull ViewGroup parent, MatchHighlighter highlighter) {
         if (view == null)
             view = inflateFromId(context, R.layout.item_phone, parent);
 
@@ -38,7 +35,7 @@ public class PhoneResult extends CallResult<PhonePojo> {
         String text = context.getString(R.string.ui_item_phone, pojo.phone);
         int pos = text.indexOf(pojo.phone);
         int len = pojo.phone.length();
-        displayHighlighted(text, Collections.singletonList(new Pair<>(pos, pos + len)), phoneText, context);
+        displayHighlighted(text, new int[]{pos, pos + len}, phoneText, context);
 
         setAsyncDrawable(view.findViewById(R.id.item_phone_icon), 0);
 
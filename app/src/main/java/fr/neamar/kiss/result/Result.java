@@ -15,7 +15,6 @@ import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
 import android.text.style.UnderlineSpan;
-import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -33,9 +32,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.preference.PreferenceManager;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -54,6 +51,7 @@ import fr.neamar.kiss.normalizer.StringNormalizer;
 import fr.neamar.kiss.pojo.AppPojo;
 import fr.neamar.kiss.pojo.ContactsPojo;
 import fr.neamar.kiss.pojo.PhonePojo;
+import fr.neamar.kiss.pojo.PojoWithTags;
 import fr.neamar.kiss.pojo.Pojo;
 import fr.neamar.kiss.pojo.SearchPojo;
 import fr.neamar.kiss.pojo.SettingPojo;
@@ -65,10 +63,9 @@ import fr.neamar.kiss.searcher.Searcher;
 import fr.neamar.kiss.ui.ListPopup;
 import fr.neamar.kiss.utils.ClipboardUtils;
 import fr.neamar.kiss.utils.DrawableUtils;
+import fr.neamar.kiss.utils.IconLoader;
 import fr.neamar.kiss.utils.Log;
-import fr.neamar.kiss.utils.Utilities;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
-import fr.neamar.kiss.utils.fuzzy.MatchInfo;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public abstract class Result<T extends Pojo> {
 
@@ -104,6 +101,25 @@ public abstract class Result<T extends Pojo> {
         throw new UnsupportedOperationException("Unable to create a result from POJO");
     }
 
+    /**
+     * Compute highlight ranges of all texts highlighted when the result of given pojo is displayed.
+     * This is called from background thread when search is done.
+     */
+    public static void prepareHighlights(@NonNull MatchHighlighter highlighter, @NonNull Pojo pojo) {
+        highlighter.prepare(pojo.normalizedName);
+        if (pojo instanceof PojoWithTags) {
+            highlighter.prepare(((PojoWithTags) pojo).getNormalizedTags());
+        }
+        if (pojo instanceof ContactsPojo) {
+            ContactsPojo contactsPojo = (ContactsPojo) pojo;
+            if (contactsPojo.getContactData() != null) {
+                highlighter.prepare(contactsPojo.getContactData().getNormalizedIdentifier());
+            }
+            highlighter.prepare(contactsPojo.normalizedPhone);
+            highlighter.prepare(contactsPojo.getNormalizedNickname());
+        }
+    }
+
     public static int getItemViewType(Result<?> result) {
         if (result instanceof AppResult)
             return 0;
@@ -148,21 +164,47 @@ public abstract class Result<T extends Pojo> {
      * @param context     android context
      * @param convertView a view to be recycled
      * @param parent      view that provides a set of LayoutParams values
-     * @param fuzzyScore  information for highlighting search result
+     * @param highlighter highlight ranges of search result
      * @return a view to display as item
      */
     @NonNull
-    public abstract View display(Context context, View convertView, @NonNull ViewGroup parent, FuzzyScore fuzzyScore);
+    public abstract View display(Context context, View convertView, @NonNull ViewGroup parent, MatchHighlighter highlighter);
+
+    /**
+     * Update view which already displays this result for a new query.
+     * Only texts which are highlighted depend on the query, everything else is kept as is.
+     * If icon was cleared since (e.g. custom icon changed) view is not updated.
+     *
+     * @param context     android context
+     * @param view        view returned by {@link #display} of this result before
+     * @param highlighter highlight ranges of search result
+     * @return true if view is up to date, false if it needs to be displayed again
+     */
+    public final boolean rebind(Context context, @NonNull View view, MatchHighlighter highlighter) {
+        return isDrawableCached() && updateHighlights(context, view, highlighter);
+    }
+
+    /**
+     * Set all texts of view which are highlighted, called by {@link #display} and {@link #rebind}.
+     *
+     * @return true if nothing else in view depends on the query
+     */
+    protected boolean updateHighlights(Context context, @NonNull View view, MatchHighlighter highlighter) {
+        return false;
+    }
 
     public void inflateFavorite(@NonNull Context context, @NonNull View favoriteView) {
         ImageView favoriteImage = favoriteView.findViewById(R.id.favorite);
         if (favoriteImage != null) {
-            setAsyncDrawable(favoriteImage, 0);
+            setAsyncDrawable(favoriteImage, 0, IconLoader.Priority.FAVORITE);
         }
         favoriteView.setContentDescription(pojo.getName());
     }
 
-    protected void displayHighlighted(String text, List<Pair<Integer, Integer>> positions, TextView view, Context context) {
+    /**
+     * @param ranges pairs of start (inclusive) and end (exclusive) positions to highlight
+     */
+    protected void displayHighlighted(String text, int[] ranges, TextView view, Context context) {
         SpannableString enriched = new SpannableString(text);
         Set<String> resultHighlighting = PreferenceManager.getDefaultSharedPreferences(context)
                 .getStringSet("pref-result-highlighting", Collections.singleton("color"));
@@ -170,15 +212,15 @@ public abstract class Result<T extends Pojo> {
         if (!resultHighlighting.isEmpty()) {
             int primaryColor = UIColors.getPrimaryColor(context);
             int len = text.length();
-            for (Pair<Integer, Integer> position : positions) {
-                if (position.first <= len) {
+            for (int i = 0; i + 1 < ranges.length; i += 2) {
+                if (ranges[i] <= len) {
                     for (String highlight : resultHighlighting) {
                         Object span = createSpan(highlight, primaryColor);
                         if (span != null) {
                             enriched.setSpan(
                                     span,
-                                    position.first,
-                                    Math.min(position.second, len),
+                                    ranges[i],
+                                    Math.min(ranges[i + 1], len),
                                     Spannable.SPAN_INCLUSIVE_INCLUSIVE
                             );
                         }
@@ -189,42 +231,19 @@ public abstract class Result<T extends Pojo> {
         view.setText(enriched);
     }
 
-    protected boolean displayHighlighted(StringNormalizer.Result normalized, String text, FuzzyScore fuzzyScore,
+    protected boolean displayHighlighted(StringNormalizer.Result normalized, String text, MatchHighlighter highlighter,
                                          TextView view, Context context) {
-        MatchInfo matchInfo = fuzzyScore.match(normalized.codePoints);
+        int[] ranges = highlighter.getRanges(normalized);
 
-        if (!matchInfo.match) {
+        if (ranges == null) {
             view.setText(text);
             return false;
         }
 
-        displayHighlighted(text, getMatchedSequences(matchInfo, normalized), view, context);
+        displayHighlighted(text, ranges, view, context);
         return true;
     }
 
-    private List<Pair<Integer, Integer>> getMatchedSequences(MatchInfo matchInfo, StringNormalizer.Result normalized) {
-        List<Integer> matchedIndices = matchInfo.getMatchedIndices();
-        if (matchedIndices == null) {
-            return Collections.emptyList();
-        }
-
-        // compute pair match indices
-        List<Pair<Integer, Integer>> positions = new ArrayList<>(matchedIndices.size());
-        int start = matchedIndices.get(0);
-        int end = start + 1;
-        for (int i = 1; i < matchedIndices.size(); i += 1) {
-            if (end == matchedIndices.get(i)) {
-                end += 1;
-            } else {
-                positions.add(new Pair<>(normalized.mapPosition(start), normalized.mapPosition(end)));
-                start = matchedIndices.get(i);
-                end = start + 1;
-            }
-        }
-        positions.add(new Pair<>(normalized.mapPosition(start), normalized.mapPosition(end)));
-        return positions;
-    }
-
     private Object createSpan(String highlight, int primaryColor) {
         switch (highlight) {
             case "color":
@@ -448,12 +467,32 @@ public abstract class Result<T extends Pojo> {
         setDrawableCache(null);
     }
 
+    /**
+     * Load icon in background before this result is displayed, so it can be shown right away.
+     * Does nothing if icon is already loaded.
+     *
+     * @param context android context
+     * @return request to cancel prefetching, null if icon is already loaded
+     */
+    @Nullable
+    public IconLoader.Request prefetchDrawable(@NonNull Context context) {
+        if (isDrawableCached()) {
+            return null;
+        }
+        return IconLoader.getInstance().load(IconLoader.Priority.PREFETCH, getPojoId(), () -> getDrawable(context), this::setDrawableCache);
+    }
+
     protected void setAsyncDrawable(@NonNull ImageView view) {
         setAsyncDrawable(view, android.R.color.transparent);
     }
 
     protected void setAsyncDrawable(@NonNull ImageView view, @DrawableRes int resId) {
-        setAsyncDrawable(view, resId, false, this::isDrawableCached, this::getDrawable, this::setDrawableCache);
+        setAsyncDrawable(view, resId, IconLoader.Priority.VISIBLE);
+    }
+
+    private void setAsyncDrawable(@NonNull ImageView view, @DrawableRes int resId, @NonNull IconLoader.Priority priority) {
+        // requests for the icon of the same pojo can share one load
+        setAsyncDrawable(view, resId, false, this::isDrawableCached, this::getDrawable, this::setDrawableCache, priority, getPojoId());
     }
 
     protected void setAsyncDrawable(@NonNull ImageView imageView,
@@ -462,11 +501,25 @@ public abstract class Result<T extends Pojo> {
                                     @NonNull Supplier<Boolean> isCachedSupplier,
                                     @NonNull Function<Context, Drawable> drawableGetter,
                                     @NonNull Consumer<Drawable> cachedDrawableSetter) {
-        Utilities.AsyncRun<Drawable> taskToCancel = getTask(imageView);
-        if (taskToCancel != null) {
-            if (!taskToCancel.isCancelled()) {
-                taskToCancel.cancel();
+        setAsyncDrawable(imageView, defaultResId, invalidateDrawable, isCachedSupplier, drawableGetter, cachedDrawableSetter, IconLoader.Priority.VISIBLE, null);
+    }
+
+    private void setAsyncDrawable(@NonNull ImageView imageView,
+                                  @DrawableRes int defaultResId,
+                                  boolean invalidateDrawable,
+                                  @NonNull Supplier<Boolean> isCachedSupplier,
+                                  @NonNull Function<Context, Drawable> drawableGetter,
+                                  @NonNull Consumer<Drawable> cachedDrawableSetter,
+                                  @NonNull IconLoader.Priority priority,
+                                  @Nullable Object key) {
+        IconLoader.Request requestToCancel = getRequest(imageView);
+        if (requestToCancel != null) {
+            if (requestToCancel.isLoading(key)) {
+                // view shows same result again (e.g. next keystroke), keep loading its icon
+                return;
             }
+            // view is recycled, icon requested before isn't needed anymore
+            requestToCancel.cancel();
             imageView.setTag(TAG_RUNNING_TASK, null);
         }
 
@@ -477,13 +530,9 @@ public abstract class Result<T extends Pojo> {
             if (defaultResId != 0) {
                 imageView.setImageResource(defaultResId);
             }
-            Utilities.AsyncRun<Drawable> newTask = Utilities.runAsync((task) -> {
-                if (task.isCancelled()) {
-                    return null;
-                }
-                return drawableGetter.apply(imageView.getContext());
-            }, (task, drawable) -> {
-                if (task.isCancelled() || drawable == null) {
+            final Context context = imageView.getContext();
+            IconLoader.Request newRequest = IconLoader.getInstance().load(priority, key, () -> drawableGetter.apply(context), drawable -> {
+                if (drawable == null) {
                     Log.w(TAG, "Cannot set drawable for " + getPojoId());
                 } else {
                     imageView.setTag(TAG_RUNNING_TASK, null);
@@ -494,14 +543,13 @@ public abstract class Result<T extends Pojo> {
                     }
                 }
             });
-            imageView.setTag(TAG_RUNNING_TASK, newTask);
+            imageView.setTag(TAG_RUNNING_TASK, newRequest);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private Utilities.AsyncRun<Drawable> getTask(ImageView view) {
+    private IconLoader.Request getRequest(ImageView view) {
         Object tag = view.getTag(TAG_RUNNING_TASK);
-        return tag instanceof Utilities.AsyncRun ? (Utilities.AsyncRun<Drawable>) tag : null;
+        return tag instanceof IconLoader.Request ? (IconLoader.Request) tag : null;
     }
 
     /**
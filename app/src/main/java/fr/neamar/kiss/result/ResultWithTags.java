@@ -18,7 +18,7 @@ import fr.neamar.kiss.adapter.RecordAdapter;
 import fr.neamar.kiss.pojo.PojoWithTags;
 import fr.neamar.kiss.ui.ListPopup;
 import fr.neamar.kiss.utils.SpaceTokenizer;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public abstract class ResultWithTags<T extends PojoWithTags> extends Result<T> {
 
@@ -78,12 +78,12 @@ public abstract class ResultWithTags<T extends PojoWithTags> extends Result<T> {
         dialog.show();
     }
 
-    protected void displayTags(Context context, FuzzyScore fuzzyScore, TextView tagsView) {
+    protected void displayTags(Context context, MatchHighlighter highlighter, TextView tagsView) {
         // Hide tags view if tags are empty
         if (TextUtils.isEmpty(pojo.getTags())) {
             tagsView.setVisibility(View.GONE);
         } else if (displayHighlighted(pojo.getNormalizedTags(), pojo.getTags(),
-                fuzzyScore, tagsView, context) || isTagsVisible(context)) {
+                highlighter, tagsView, context) || isTagsVisible(context)) {
             tagsView.setVisibility(View.VISIBLE);
         } else {
             tagsView.setVisibility(View.GONE);
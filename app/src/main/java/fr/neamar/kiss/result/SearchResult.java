@@ -10,7 +10,6 @@ import android.net.Uri;
 import android.provider.AlarmClock;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
-import android.util.Pair;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
@@ -23,7 +22,6 @@ import androidx.annotation.Nullable;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
-import java.util.Collections;
 
 import fr.neamar.kiss.IconsHandler;
 import fr.neamar.kiss.KissApplication;
@@ -36,7 +34,7 @@ import fr.neamar.kiss.ui.ListPopup;
 import fr.neamar.kiss.utils.ClipboardUtils;
 import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.PackageManagerUtils;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class SearchResult extends Result<SearchPojo> {
 
@@ -50,7 +48,7 @@ public class SearchResult extends Result<SearchPojo> {
 
     @NonNull
     @Override
-    public View display(Context context, View view, @NonNull ViewGroup parent, FuzzyScore fuzzyScore) {
+    public View display(Context context, View view, @NonNull ViewGroup parent, MatchHighlighter highlighter) {
         if (view == null)
             view = inflateFromId(context, R.layout.item_search, parent);
 
@@ -98,7 +96,7 @@ public class SearchResult extends Result<SearchPojo> {
                 throw new IllegalArgumentException("Following type isn't supported: " + pojo.type);
         }
 
-        displayHighlighted(text, Collections.singletonList(new Pair<>(pos, pos + len)), searchText, context);
+        displayHighlighted(text, new int[]{pos, pos + len}, searchText, context);
 
         return view;
     }
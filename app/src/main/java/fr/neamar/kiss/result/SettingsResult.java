@@ -17,7 +17,7 @@ import fr.neamar.kiss.icons.IconPack;
 import fr.neamar.kiss.pojo.SettingPojo;
 import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.PackageManagerUtils;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class SettingsResult extends Result<SettingPojo> {
     private static final String TAG = SettingsResult.class.getSimpleName();
@@ -30,12 +30,11 @@ public class SettingsResult extends Result<SettingPojo> {
 
     @NonNull
     @Override
-    public View display(Context context, View view, @NonNull ViewGroup parent, FuzzyScore fuzzyScore) {
+    public View display(Context context, View view, @NonNull ViewGroup parent, MatchHighlighter highlighter) {
         if (view == null)
             view = inflateFromId(context, R.layout.item_setting, parent);
 
-        TextView settingName = view.findViewById(R.id.item_setting_name);
-        displayHighlighted(pojo.normalizedName, pojo.getName(), fuzzyScore, settingName, context);
+        updateHighlights(context, view, highlighter);
 
         ImageView settingIcon = view.findViewById(R.id.item_setting_icon);
         if (!isHideIcons(context)) {
@@ -47,6 +46,13 @@ public class SettingsResult extends Result<SettingPojo> {
         return view;
     }
 
+    @Override
+    protected boolean updateHighlights(Context context, @NonNull View view, MatchHighlighter highlighter) {
+        TextView settingName = view.findViewById(R.id.item_setting_name);
+        displayHighlighted(pojo.normalizedName, pojo.getName(), highlighter, settingName, context);
+        return true;
+    }
+
     @Override
     boolean isDrawableCached() {
         return icon != null;
@@ -34,7 +34,7 @@ import fr.neamar.kiss.utils.Log;
 import fr.neamar.kiss.utils.PackageManagerUtils;
 import fr.neamar.kiss.utils.ShortcutUtil;
 import fr.neamar.kiss.utils.UserHandle;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class ShortcutsResult extends ResultWithTags<ShortcutPojo> {
 
@@ -49,16 +49,11 @@ public class ShortcutsResult extends ResultWithTags<ShortcutPojo> {
 
     @NonNull
     @Override
-    public View display(final Context context, View view, @NonNull ViewGroup parent, FuzzyScore fuzzyScore) {
+    public View display(final Context context, View view, @NonNull ViewGroup parent, MatchHighlighter highlighter) {
         if (view == null)
             view = inflateFromId(context, R.layout.item_shortcut, parent);
 
-        TextView shortcutName = view.findViewById(R.id.item_app_name);
-
-        displayHighlighted(pojo.normalizedName, pojo.getName(), fuzzyScore, shortcutName, context);
-
-        TextView tagsView = view.findViewById(R.id.item_shortcut_tag);
-        displayTags(context, fuzzyScore, tagsView);
+        updateHighlights(context, view, highlighter);
 
         final ImageView shortcutIcon = view.findViewById(R.id.item_shortcut_icon);
         final ImageView appIcon = view.findViewById(R.id.item_app_icon);
@@ -82,6 +77,16 @@ public class ShortcutsResult extends ResultWithTags<ShortcutPojo> {
         return view;
     }
 
+    @Override
+    protected boolean updateHighlights(Context context, @NonNull View view, MatchHighlighter highlighter) {
+        TextView shortcutName = view.findViewById(R.id.item_app_name);
+        displayHighlighted(pojo.normalizedName, pojo.getName(), highlighter, shortcutName, context);
+
+        TextView tagsView = view.findViewById(R.id.item_shortcut_tag);
+        displayTags(context, highlighter, tagsView);
+        return true;
+    }
+
     private Drawable getAppDrawable(Context context) {
         if (appDrawable == null) {
             synchronized (this) {
@@ -19,7 +19,7 @@ import fr.neamar.kiss.MainActivity;
 import fr.neamar.kiss.R;
 import fr.neamar.kiss.icons.IconPack;
 import fr.neamar.kiss.pojo.TagDummyPojo;
-import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
 
 public class TagDummyResult extends Result<TagDummyPojo> {
     private static volatile Drawable gBackground = null;
@@ -53,7 +53,7 @@ public class TagDummyResult extends Result<TagDummyPojo> {
 
     @NonNull
     @Override
-    public View display(Context context, View view, @NonNull ViewGroup parent, FuzzyScore fuzzyScore) {
+    public View display(Context context, View view, @NonNull ViewGroup parent, MatchHighlighter highlighter) {
         if (view == null)
             view = inflateFromId(context, R.layout.item_search, parent);
 
@@ -67,6 +67,12 @@ public class TagDummyResult extends Result<TagDummyPojo> {
         return view;
     }
 
+    @Override
+    protected boolean updateHighlights(Context context, @NonNull View view, MatchHighlighter highlighter) {
+        // nothing is highlighted
+        return true;
+    }
+
     @Override
     public void inflateFavorite(@NonNull Context context, @NonNull View favoriteView) {
         super.inflateFavorite(context, favoriteView);
@@ -1,7 +1,6 @@
 package fr.neamar.kiss.searcher;
 
 import android.content.SharedPreferences;
-import android.content.pm.ShortcutInfo;
 
 import androidx.preference.PreferenceManager;
 
@@ -13,11 +12,7 @@ import fr.neamar.kiss.DataHandler;
 import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.MainActivity;
 import fr.neamar.kiss.db.HistoryMode;
-import fr.neamar.kiss.db.ShortcutRecord;
-import fr.neamar.kiss.pojo.AppPojo;
 import fr.neamar.kiss.pojo.Pojo;
-import fr.neamar.kiss.utils.ShortcutUtil;
-import fr.neamar.kiss.utils.UserHandle;
 
 /**
  * Retrieve pojos from history
@@ -43,37 +38,20 @@ public class HistorySearcher extends Searcher {
 
     @Override
     protected Void doInBackground(Void... voids) {
-        // Ask for records
-        boolean excludeFavorites = prefs.getBoolean("exclude-favorites-history", false);
-
         MainActivity activity = activityWeakReference.get();
         if (activity == null)
             return null;
 
         DataHandler dataHandler = KissApplication.getApplication(activity).getDataHandler();
+        // Ask for records
+        boolean excludeFavorites = dataHandler.getPreferences().isExcludeFavoritesHistory();
 
-        //Gather excluded
-        Set<String> excludedFromHistory = dataHandler.getExcludedFromHistory();
-        Set<String> excludedPojoById = new HashSet<>(excludedFromHistory);
-
-        // add ids of shortcuts for excluded apps
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
-            for (String id : excludedFromHistory) {
-                Pojo pojo = dataHandler.getItemById(id);
-                if (pojo instanceof AppPojo) {
-                    List<ShortcutInfo> shortcutInfos = ShortcutUtil.getShortcuts(activity, ((AppPojo) pojo).packageName);
-                    for (ShortcutInfo shortcutInfo : shortcutInfos) {
-                        ShortcutRecord shortcutRecord = ShortcutUtil.createShortcutRecord(activity, shortcutInfo, !shortcutInfo.isPinned());
-                        if (shortcutRecord != null) {
-                            excludedPojoById.add(ShortcutUtil.generateShortcutId(new UserHandle(activity, shortcutInfo.getUserHandle()), shortcutRecord));
-                        }
-                    }
-                }
-            }
-        }
+        //Gather excluded, ids of shortcuts of excluded apps are cached by data handler
+        Set<String> excludedPojoById = dataHandler.getExcludedFromHistoryIds();
 
         if (excludeFavorites) {
             // Gather favorites
+            excludedPojoById = new HashSet<>(excludedPojoById);
             for (Pojo favoritePojo : dataHandler.getFavorites()) {
                 excludedPojoById.add(favoritePojo.id);
             }
@@ -84,6 +84,7 @@ public class QuerySearcher extends Searcher {
 
         // Request results via "addResult"
         KissApplication.getApplication(activity).getDataHandler().requestResults(query, this);
+        prepareHighlights(activity);
         return null;
     }
 
@@ -5,21 +5,30 @@ import android.content.Context;
 import android.os.AsyncTask;
 
 import androidx.annotation.CallSuper;
+import androidx.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.MainActivity;
+import fr.neamar.kiss.loader.LoadScheduler;
+import fr.neamar.kiss.normalizer.StringNormalizer;
 import fr.neamar.kiss.pojo.Pojo;
 import fr.neamar.kiss.pojo.RelevanceComparator;
 import fr.neamar.kiss.result.Result;
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
 import fr.neamar.kiss.utils.Log;
+import fr.neamar.kiss.utils.fuzzy.FuzzyFactory;
+import fr.neamar.kiss.utils.fuzzy.MatchHighlighter;
+import fr.neamar.kiss.utils.fuzzy.MatchInfo;
 
 public abstract class Searcher extends AsyncTask<Void, Result<?>, Void> {
 
@@ -55,6 +64,9 @@ public abstract class Searcher extends AsyncTask<Void, Result<?>, Void> {
     protected static final int DEFAULT_MAX_RESULTS = 50;
     protected final WeakReference<MainActivity> activityWeakReference;
     private final PriorityQueue<Pojo> processedPojos;
+    // matches of texts found by providers, by identity of normalized text
+    private final Map<StringNormalizer.Result, MatchInfo> matches = new IdentityHashMap<>();
+    private MatchHighlighter highlighter = null;
     private long start;
     private SearchDoneCallback searchDoneCallback;
 
@@ -100,6 +112,48 @@ public abstract class Searcher extends AsyncTask<Void, Result<?>, Void> {
         return this.processedPojos.addAll(pojos);
     }
 
+    /**
+     * Keep match of a text of a pojo added to results, so it doesn't need to be matched again for highlighting.
+     * This is called from the background thread by the providers.
+     *
+     * @param normalized normalized text, nothing is kept if null
+     * @param matchInfo  copy of match with detailed match indices, nothing is kept if null
+     */
+    public void addMatch(@Nullable StringNormalizer.Result normalized, @Nullable MatchInfo matchInfo) {
+        if (normalized != null && matchInfo != null) {
+            matches.put(normalized, matchInfo);
+        }
+    }
+
+    private void dropExceedingResults() {
+        int maxResults = getMaxResultCount();
+        while (processedPojos.size() > maxResults) {
+            processedPojos.poll();
+        }
+    }
+
+    /**
+     * Compute highlight ranges of the results that will be displayed, so the list doesn't need to
+     * match the query again when binding them.
+     * This must be called from the background thread after all results were added.
+     */
+    protected void prepareHighlights(Context context) {
+        if (isCancelled() || query == null) {
+            return;
+        }
+        dropExceedingResults();
+        StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
+        MatchHighlighter matchHighlighter = new MatchHighlighter(FuzzyFactory.createFuzzyScore(context, queryNormalized.codePoints, true));
+        for (Map.Entry<StringNormalizer.Result, MatchInfo> entry : matches.entrySet()) {
+            matchHighlighter.prepare(entry.getKey(), entry.getValue());
+        }
+        // only texts not matched by providers are matched here
+        for (Pojo pojo : processedPojos) {
+            Result.prepareHighlights(matchHighlighter, pojo);
+        }
+        highlighter = matchHighlighter;
+    }
+
     @CallSuper
     @Override
     protected void onPreExecute() {
@@ -118,8 +172,8 @@ public abstract class Searcher extends AsyncTask<Void, Result<?>, Void> {
     }
 
     private void hideActivityLoader(MainActivity activity) {
-        // Loader should still be displayed until all the providers have finished loading
-        activity.displayLoader(!KissApplication.getApplication(activity).getDataHandler().isAllProvidersLoaded());
+        // Loader should still be displayed until apps have finished loading
+        activity.displayLoader(!KissApplication.getApplication(activity).getDataHandler().isStageLoaded(LoadScheduler.Stage.APPS));
     }
 
     @Override
@@ -136,10 +190,7 @@ public abstract class Searcher extends AsyncTask<Void, Result<?>, Void> {
             activity.adapter.clear();
         } else {
             PriorityQueue<Pojo> queue = this.processedPojos;
-            int maxResults = getMaxResultCount();
-            while (queue.size() > maxResults) {
-                queue.poll();
-            }
+            dropExceedingResults();
             List<Pojo> pojos = new ArrayList<>(queue.size());
             while (queue.peek() != null) {
                 Pojo pojo = queue.poll();
@@ -148,7 +199,7 @@ public abstract class Searcher extends AsyncTask<Void, Result<?>, Void> {
                 }
             }
 
-            activity.adapter.updateWithPojos(activity, pojos, isRefresh, query);
+            activity.adapter.updateWithPojos(activity, pojos, isRefresh, query, highlighter);
         }
 
         searchDone(false);
@@ -156,6 +207,7 @@ public abstract class Searcher extends AsyncTask<Void, Result<?>, Void> {
         hideActivityLoader(activity);
 
         long time = System.currentTimeMillis() - start;
+        FrameMetricsRecorder.getInstance().recordSearch(time);
         Log.d(TAG, "Time to run query `" + query + "` on " + getClass().getSimpleName() + " to completion: " + time + "ms (isRefresh=" + isRefresh + ")");
     }
 
@@ -1,21 +1,48 @@
 package fr.neamar.kiss.searcher;
 
-import android.text.TextUtils;
+import java.util.ArrayList;
+import java.util.List;
 
+import fr.neamar.kiss.DataHandler;
+import fr.neamar.kiss.KissApplication;
 import fr.neamar.kiss.MainActivity;
+import fr.neamar.kiss.pojo.Pojo;
 import fr.neamar.kiss.pojo.PojoWithTags;
 
 /**
- * Returns a list of all results that match the specified tag
+ * Returns a list of all results that match the specified tag.
+ * Records are taken from the tag index, so other records aren't looked at.
  */
 public class TagsSearcher extends PojoWithTagSearcher {
     public TagsSearcher(MainActivity activity, String query) {
         super(activity, query == null ? "<tags>" : query);
     }
 
+    @Override
+    protected Void doInBackground(Void... voids) {
+        MainActivity activity = activityWeakReference.get();
+        if (activity == null)
+            return null;
+
+        DataHandler dataHandler = KissApplication.getApplication(activity).getDataHandler();
+        List<Pojo> pojos = new ArrayList<>();
+        for (String id : dataHandler.getTagsHandler().getIdsForTag(query)) {
+            if (isCancelled())
+                return null;
+            Pojo pojo = dataHandler.getItemById(id);
+            if (pojo != null) {
+                pojos.add(pojo);
+            }
+        }
+        addResults(pojos);
+
+        return null;
+    }
+
     @Override
     protected boolean acceptPojo(PojoWithTags pojoWithTags) {
-        return !TextUtils.isEmpty(pojoWithTags.getTags()) && pojoWithTags.getTags().contains(query);
+        // all records come from the tag index
+        return true;
     }
 
 }
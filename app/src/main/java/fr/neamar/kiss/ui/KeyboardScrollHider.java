@@ -9,6 +9,8 @@ import android.view.animation.AccelerateInterpolator;
 
 import androidx.annotation.NonNull;
 
+import fr.neamar.kiss.utils.FrameMetricsRecorder;
+
 /**
  * Utility class for automatically hiding the keyboard when scrolling down a {@link android.widget.ListView},
  * keeping the position of the finger on the list stable
@@ -150,6 +152,7 @@ public class KeyboardScrollHider implements View.OnTouchListener {
                 break;
 
             case MotionEvent.ACTION_MOVE:
+                FrameMetricsRecorder.getInstance().mark(FrameMetricsRecorder.Phase.SCROLL);
                 this.offsetYCurrent = event.getY();
                 this.lastMotionEvent = event;
 
@@ -173,6 +176,7 @@ public class KeyboardScrollHider implements View.OnTouchListener {
                     animator.setDuration(animationDuration);
                     animator.setInterpolator(new AccelerateInterpolator());
                     animator.addUpdateListener(animation -> {
+                        FrameMetricsRecorder.getInstance().mark(FrameMetricsRecorder.Phase.SCROLL);
                         int height = (int) animation.getAnimatedValue();
                         KeyboardScrollHider.this.setListLayoutHeight(height);
                     });
@@ -5,6 +5,7 @@ import android.appwidget.AppWidgetHostView;
 import android.appwidget.AppWidgetProviderInfo;
 import android.content.Context;
 import android.content.res.Resources;
+import android.os.Build;
 
 import fr.neamar.kiss.utils.Log;
 
@@ -52,6 +53,21 @@ public class WidgetHost extends AppWidgetHost {
         clearViews();
     }
 
+    /**
+     * Stop receiving updates while widgets are hidden, without removing their views.
+     * Updates are delivered when listening starts again, this is only supported since Android 8.
+     */
+    public void suspendListening() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            try {
+                super.stopListening();
+                Log.d(TAG, "Suspend listening");
+            } catch (NullPointerException e) {
+                Log.d(TAG, "Suspend listening failed", e);
+            }
+        }
+    }
+
     @Override
     protected void onProvidersChanged() {
         super.onProvidersChanged();
@@ -0,0 +1,198 @@
+package fr.neamar.kiss.utils;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of bitmaps and canvases used for rendering icons.
+ * <p/>
+ * Icons are rendered at very few sizes, so bitmaps are kept in buckets by size and handed out
+ * again once they are released. Only bitmaps that are not referenced anymore may be released,
+ * e.g. intermediate bitmaps which were replaced by a masked version. Bitmaps of icons that are
+ * displayed or cached must never be released, as they are shared.
+ */
+public class BitmapPool {
+    private static final String TAG = BitmapPool.class.getSimpleName();
+
+    /**
+     * Maximum number of bitmaps kept per size
+     */
+    private static final int MAX_PER_BUCKET = 4;
+    /**
+     * Maximum bytes of all pooled bitmaps
+     */
+    private static final int MAX_SIZE = 4 * 1024 * 1024;
+    /**
+     * Maximum number of pooled canvases
+     */
+    private static final int MAX_CANVASES = 4;
+
+    private static BitmapPool instance = null;
+
+    private final SparseArray<ArrayDeque<Bitmap>> buckets = new SparseArray<>();
+    private final ArrayDeque<Canvas> canvases = new ArrayDeque<>();
+    private int size = 0;
+    private int allocationCount = 0;
+    private int reuseCount = 0;
+
+    public static synchronized BitmapPool getInstance() {
+        if (instance == null) {
+            instance = new BitmapPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Get a transparent, mutable ARGB_8888 bitmap, reused from pool if possible.
+     *
+     * @param width  width of bitmap
+     * @param height height of bitmap
+     * @return bitmap
+     */
+    @NonNull
+    public Bitmap acquire(int width, int height) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            ArrayDeque<Bitmap> bucket = buckets.get(getBucketKey(width, height));
+            if (bucket != null && !bucket.isEmpty()) {
+                bitmap = bucket.pop();
+                size -= bitmap.getAllocationByteCount();
+                reuseCount += 1;
+            } else {
+                allocationCount += 1;
+            }
+        }
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Return bitmap to pool. Bitmap must not be used by caller afterwards.
+     *
+     * @param bitmap bitmap that isn't referenced anymore
+     */
+    public void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            return;
+        }
+        int bitmapSize = bitmap.getAllocationByteCount();
+        synchronized (this) {
+            int key = getBucketKey(bitmap.getWidth(), bitmap.getHeight());
+            ArrayDeque<Bitmap> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>(MAX_PER_BUCKET);
+                buckets.put(key, bucket);
+            }
+            if (bucket.size() < MAX_PER_BUCKET && size + bitmapSize <= MAX_SIZE && !bucket.contains(bitmap)) {
+                bucket.push(bitmap);
+                size += bitmapSize;
+            }
+        }
+    }
+
+    /**
+     * Return bitmap of drawable to pool, see {@link #release(Bitmap)}.
+     *
+     * @param drawable drawable that isn't referenced anymore
+     */
+    public void release(@Nullable Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            release(((BitmapDrawable) drawable).getBitmap());
+        }
+    }
+
+    /**
+     * Get a canvas drawing into given bitmap, must be returned by {@link #releaseCanvas(Canvas)}.
+     *
+     * @param bitmap bitmap to draw into
+     * @return canvas without draw filter
+     */
+    @NonNull
+    public Canvas obtainCanvas(@NonNull Bitmap bitmap) {
+        Canvas canvas;
+        synchronized (canvases) {
+            canvas = canvases.poll();
+        }
+        if (canvas == null) {
+            canvas = new Canvas();
+        }
+        canvas.setBitmap(bitmap);
+        return canvas;
+    }
+
+    /**
+     * Return canvas to pool, it must not be used by caller afterwards.
+     *
+     * @param canvas canvas from {@link #obtainCanvas(Bitmap)}
+     */
+    public void releaseCanvas(@NonNull Canvas canvas) {
+        canvas.setBitmap(null);
+        canvas.setDrawFilter(null);
+        synchronized (canvases) {
+            if (canvases.size() < MAX_CANVASES) {
+                canvases.push(canvas);
+            }
+        }
+    }
+
+    /**
+     * @return number of bitmaps created by this pool
+     */
+    public synchronized int getAllocationCount() {
+        return allocationCount;
+    }
+
+    /**
+     * @return number of bitmaps reused from this pool
+     */
+    public synchronized int getReuseCount() {
+        return reuseCount;
+    }
+
+    /**
+     * @return bytes used by pooled bitmaps
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+        size = 0;
+    }
+
+    /**
+     * Release memory depending on given level, see {@link ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param level the memory-related event that was raised.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+            Log.i(TAG, "Cleared bitmap pool for level " + level + ": " + this);
+        }
+    }
+
+    private static int getBucketKey(int width, int height) {
+        return (width << 16) | (height & 0xFFFF);
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "size=" + size + " bytes, allocations=" + allocationCount + ", reuses=" + reuseCount;
+    }
+}
@@ -0,0 +1,154 @@
+package fr.neamar.kiss.utils;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads contact photos in the size they are displayed.
+ * <p/>
+ * Contact photos can be several megapixels, so they are decoded with a sample size matching the
+ * size of the badge and scaled down afterwards. Decoded photos are kept in a memory cache.
+ * If a version of the photo is known (PHOTO_ID and last update of contact), photos are also stored
+ * in a {@link PackedIconCache} on disk and don't need to be decoded again after a restart.
+ */
+public class ContactPhotoLoader {
+    private static final String TAG = ContactPhotoLoader.class.getSimpleName();
+
+    private final IconMemoryCache memoryCache;
+    @Nullable
+    private final PackedIconCache diskCache;
+    private final int size;
+
+    /**
+     * @param memoryCache memory cache for decoded photos
+     * @param diskCache   disk cache for decoded photos, null to only cache in memory
+     * @param size        width and height of decoded photos in px
+     */
+    public ContactPhotoLoader(@NonNull IconMemoryCache memoryCache, @Nullable PackedIconCache diskCache, int size) {
+        this.memoryCache = memoryCache;
+        this.diskCache = diskCache;
+        this.size = size;
+    }
+
+    /**
+     * Load photo of contact, must not be called on main thread.
+     *
+     * @param context  context
+     * @param photoUri uri of contact photo
+     * @param photoKey version of photo, used as key for disk cache. If null, photo is only cached in memory.
+     * @return photo, null if it can't be loaded
+     */
+    @Nullable
+    public Bitmap load(@NonNull Context context, @NonNull Uri photoUri, @Nullable String photoKey) {
+        final String cacheKey = photoKey != null ? photoKey : photoUri.toString();
+        final int generation = memoryCache.getGeneration();
+        Bitmap bitmap = memoryCache.get(generation, cacheKey);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        if (diskCache != null && photoKey != null) {
+            bitmap = diskCache.get(photoKey, null);
+            if (bitmap != null) {
+                memoryCache.put(generation, cacheKey, bitmap);
+                return bitmap;
+            }
+        }
+
+        bitmap = decode(context, photoUri);
+        if (bitmap != null) {
+            if (diskCache != null && photoKey != null) {
+                diskCache.put(photoKey, bitmap);
+            }
+            memoryCache.put(generation, cacheKey, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Decode photo with largest sample size that keeps it at least as big as the badge.
+     */
+    @Nullable
+    private Bitmap decode(@NonNull Context context, @NonNull Uri photoUri) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream inputStream = context.getContentResolver().openInputStream(photoUri)) {
+            BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IOException | SecurityException e) {
+            Log.d(TAG, "Unable to load contact photo " + photoUri, e);
+            return null;
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, size);
+        Bitmap bitmap;
+        try (InputStream inputStream = context.getContentResolver().openInputStream(photoUri)) {
+            bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IOException | SecurityException e) {
+            Log.d(TAG, "Unable to load contact photo " + photoUri, e);
+            return null;
+        }
+        if (bitmap == null) {
+            return null;
+        }
+
+        // sample size is a power of 2, scale down remaining difference and crop to square
+        int minSide = Math.min(bitmap.getWidth(), bitmap.getHeight());
+        if (minSide > size || bitmap.getWidth() != bitmap.getHeight()) {
+            Matrix matrix = new Matrix();
+            if (minSide > size) {
+                float scale = size / (float) minSide;
+                matrix.setScale(scale, scale);
+            }
+            Bitmap scaled = Bitmap.createBitmap(bitmap, (bitmap.getWidth() - minSide) / 2, (bitmap.getHeight() - minSide) / 2, minSide, minSide, matrix, true);
+            if (scaled != bitmap) {
+                bitmap.recycle();
+            }
+            bitmap = scaled;
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return largest power of 2, so the smaller side of the sampled image is still at least of requested size
+     */
+    static int getSampleSize(int width, int height, int size) {
+        int sampleSize = 1;
+        int minSide = Math.min(width, height);
+        while (minSide / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Release memory depending on given level, see {@link ComponentCallbacks2#onTrimMemory(int)}.
+     *
+     * @param level the memory-related event that was raised.
+     */
+    public void trimMemory(int level) {
+        memoryCache.trimMemory(level);
+    }
+
+    /**
+     * Remove photos not used for a long time from disk cache.
+     */
+    public void collectGarbage(long maxSize, long maxAge) {
+        if (diskCache != null) {
+            diskCache.collectGarbage(maxSize, maxAge);
+        }
+    }
+}
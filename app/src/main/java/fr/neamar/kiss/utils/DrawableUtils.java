@@ -1,6 +1,8 @@
 package fr.neamar.kiss.utils;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -33,6 +35,7 @@ public class DrawableUtils {
     private static final Paint PAINT = new Paint();
     private static final Path SHAPE_PATH = new Path();
     private static final RectF RECT_F = new RectF();
+    private static final PaintFlagsDrawFilter DRAW_FILTER = new PaintFlagsDrawFilter(0, Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
     public static final String KEY_THEMED_ICONS = "themed-icons";
     private static final String TAG = DrawableUtils.class.getSimpleName();
     private static final IconShape[] TEARDROP_SHAPES = {IconShape.SHAPE_TEARDROP_BR, IconShape.SHAPE_TEARDROP_BL, IconShape.SHAPE_TEARDROP_TL, IconShape.SHAPE_TEARDROP_TR};
@@ -69,6 +72,7 @@ public class DrawableUtils {
         Canvas canvas = createCanvas(bitmap);
         drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
         drawable.draw(canvas);
+        BitmapPool.getInstance().releaseCanvas(canvas);
         return bitmap;
     }
 
@@ -129,7 +133,7 @@ public class DrawableUtils {
             int layerSize = (int) (maxIconSize * (1 + 2 * AdaptiveIconDrawable.getExtraInsetFraction()));
             int layerOffset = (layerSize - maxIconSize) / 2;
 
-            outputBitmap = Bitmap.createBitmap(maxIconSize, maxIconSize, Bitmap.Config.ARGB_8888);
+            outputBitmap = BitmapPool.getInstance().acquire(maxIconSize, maxIconSize);
             outputCanvas = createCanvas(outputBitmap);
 
             setIconShapeAndDrawBackground(outputCanvas, bgDrawable != null ? Color.TRANSPARENT : backgroundColor, shape, false, icon.hashCode());
@@ -152,7 +156,7 @@ public class DrawableUtils {
             }
             Rect bounds = getIconBounds(icon, maxIconSize, marginPercent);
 
-            outputBitmap = Bitmap.createBitmap(maxIconSize, maxIconSize, Bitmap.Config.ARGB_8888);
+            outputBitmap = BitmapPool.getInstance().acquire(maxIconSize, maxIconSize);
             outputCanvas = createCanvas(outputBitmap);
 
             setIconShapeAndDrawBackground(outputCanvas, backgroundColor, shape, true, icon.hashCode());
@@ -161,6 +165,7 @@ public class DrawableUtils {
             icon.setBounds(bounds);
             icon.draw(outputCanvas);
         }
+        BitmapPool.getInstance().releaseCanvas(outputCanvas);
         return new BitmapDrawable(ctx.getResources(), outputBitmap);
     }
 
@@ -197,10 +202,12 @@ public class DrawableUtils {
         return new Rect(offsetWidth, offsetHeight, w + offsetWidth, h + offsetHeight);
     }
 
+    /**
+     * @return canvas from {@link BitmapPool}, must be released after drawing
+     */
     private static Canvas createCanvas(Bitmap bitmap) {
-        Canvas canvas = new Canvas();
-        canvas.setDrawFilter(new PaintFlagsDrawFilter(0, Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG));
-        canvas.setBitmap(bitmap);
+        Canvas canvas = BitmapPool.getInstance().obtainCanvas(bitmap);
+        canvas.setDrawFilter(DRAW_FILTER);
         return canvas;
     }
 
@@ -338,6 +345,28 @@ public class DrawableUtils {
         return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
     }
 
+    /**
+     * Icon mask of the device may be changed by the user or the system theme.
+     *
+     * @return hash of the icon mask configured for device, 0 if none
+     */
+    public static int getDeviceMaskHash() {
+        if (!hasDeviceConfiguredMask()) {
+            return 0;
+        }
+        Resources resources = Resources.getSystem();
+        @SuppressLint("DiscouragedApi")
+        int maskId = resources.getIdentifier("config_icon_mask", "string", "android");
+        if (maskId == 0) {
+            return 0;
+        }
+        try {
+            return resources.getString(maskId).hashCode();
+        } catch (Resources.NotFoundException e) {
+            return 0;
+        }
+    }
+
     public static boolean hasThemedIcons() {
         return Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU;
     }
@@ -383,7 +412,7 @@ public class DrawableUtils {
         int iconSize = getMaxIconSize(ctx);
         Bitmap bitmap = generateBackgroundBitmap(iconSize, backgroundColor, shape, codepoint);
         // create a canvas from a bitmap
-        Canvas canvas = new Canvas(bitmap);
+        Canvas canvas = BitmapPool.getInstance().obtainCanvas(bitmap);
 
         // use StaticLayout to draw the text centered
         TextPaint paint = new TextPaint();
@@ -442,17 +471,20 @@ public class DrawableUtils {
             paint.setStrokeWidth(ctx.getResources().getDisplayMetrics().density);
             canvas.drawRoundRect(rectF, rectF.width() / 2.4f, rectF.height() / 2.4f, paint);
         }
+        BitmapPool.getInstance().releaseCanvas(canvas);
         return new BitmapDrawable(ctx.getResources(), bitmap);
     }
 
     @NonNull
     private static Bitmap generateBackgroundBitmap(int iconSize, @ColorInt int backgroundColor, @NonNull IconShape shape, int hash) {
         // create a canvas from a bitmap
-        Bitmap bitmap = Bitmap.createBitmap(iconSize, iconSize, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
+        BitmapPool pool = BitmapPool.getInstance();
+        Bitmap bitmap = pool.acquire(iconSize, iconSize);
+        Canvas canvas = pool.obtainCanvas(bitmap);
 
         setIconShapeAndDrawBackground(canvas, backgroundColor, shape, true, hash);
 
+        pool.releaseCanvas(canvas);
         return bitmap;
     }
 
@@ -0,0 +1,78 @@
+package fr.neamar.kiss.utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Histogram of durations with a resolution of one millisecond.
+ * Recording is constant time and doesn't allocate, durations above the maximum are counted in
+ * one overflow bucket.
+ */
+public class DurationHistogram {
+    private final int[] buckets;
+    private int count = 0;
+
+    /**
+     * @param maxMillis longest duration with own bucket
+     */
+    public DurationHistogram(int maxMillis) {
+        this.buckets = new int[maxMillis + 2];
+    }
+
+    /**
+     * @param millis duration in milliseconds
+     */
+    public void record(long millis) {
+        int bucket = (int) Math.max(0, Math.min(millis, buckets.length - 1));
+        buckets[bucket] += 1;
+        count += 1;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return number of recorded durations longer than given duration
+     */
+    public int getCountAbove(long millis) {
+        int result = 0;
+        for (int i = (int) Math.max(0, Math.min(millis + 1, buckets.length)); i < buckets.length; i++) {
+            result += buckets[i];
+        }
+        return result;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return duration in milliseconds which isn't exceeded by given percentage of recorded durations, -1 if nothing was recorded.
+     * If the percentile falls into the overflow bucket, the maximum duration + 1 is returned.
+     */
+    public int getPercentile(int percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        // rank of the duration, rounded up
+        long rank = Math.max(1, ((long) count * percentile + 99) / 100);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return buckets.length - 1;
+    }
+
+    public void clear() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "n=" + count + ", p50=" + getPercentile(50) + "ms, p95=" + getPercentile(95) + "ms, p99=" + getPercentile(99) + "ms";
+    }
+}
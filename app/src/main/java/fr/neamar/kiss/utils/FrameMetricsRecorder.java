@@ -0,0 +1,192 @@
+package fr.neamar.kiss.utils;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Opt-in recorder of frame times on the main window, grouped by what the user was doing.
+ * <p/>
+ * Code paths call {@link #mark(Phase)} when something happens, frames rendered shortly after are
+ * attributed to that phase. Frames outside of any phase are ignored. Frame durations are taken
+ * from {@link FrameMetrics} (Android 7+), which are delivered on a background thread and only for
+ * frames that are actually drawn, so recording costs nothing while KISS is idle.
+ * Durations of searches and startup tasks are recorded as well, so one report shows all of them.
+ */
+public class FrameMetricsRecorder {
+    private static final String TAG = FrameMetricsRecorder.class.getSimpleName();
+
+    public enum Phase {
+        KEYSTROKE,
+        RESULT_BIND,
+        SCROLL,
+        FAVORITES_DRAG
+    }
+
+    /**
+     * Frames rendered within this time after a phase was marked are attributed to it
+     */
+    private static final long PHASE_WINDOW_MILLIS = 250;
+    private static final int MAX_FRAME_MILLIS = 250;
+    private static final int MAX_SEARCH_MILLIS = 1000;
+
+    private static FrameMetricsRecorder instance = null;
+
+    private final DurationHistogram[] frameTimes = new DurationHistogram[Phase.values().length];
+    private final int[] jankFrames = new int[Phase.values().length];
+    private final DurationHistogram searchTimes = new DurationHistogram(MAX_SEARCH_MILLIS);
+    private final Map<String, Long> taskTimes = new LinkedHashMap<>();
+    private volatile boolean enabled = false;
+    private volatile Phase phase = null;
+    private volatile long phaseMarkedAt = 0;
+    private long frameBudgetNanos = 1000000000L / 60;
+    private Handler handler = null;
+    private Window.OnFrameMetricsAvailableListener listener = null;
+
+    public static synchronized FrameMetricsRecorder getInstance() {
+        if (instance == null) {
+            instance = new FrameMetricsRecorder();
+        }
+        return instance;
+    }
+
+    private FrameMetricsRecorder() {
+        for (int i = 0; i < frameTimes.length; i++) {
+            frameTimes[i] = new DurationHistogram(MAX_FRAME_MILLIS);
+        }
+    }
+
+    /**
+     * Start recording frames of window, does nothing on devices before Android 7.
+     */
+    public void attach(@NonNull Window window) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            attachListener(window);
+        }
+    }
+
+    /**
+     * Stop recording frames of window.
+     */
+    public void detach(@NonNull Window window) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            detachListener(window);
+        }
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    private synchronized void attachListener(@NonNull Window window) {
+        if (listener != null) {
+            return;
+        }
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread(TAG);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        Display display = window.getWindowManager().getDefaultDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        frameBudgetNanos = (long) (1000000000L / Math.max(refreshRate, 1f));
+
+        listener = (w, frameMetrics, dropCountSinceLastInvocation) -> {
+            Phase currentPhase = phase;
+            if (currentPhase != null && SystemClock.uptimeMillis() - phaseMarkedAt <= PHASE_WINDOW_MILLIS) {
+                recordFrame(currentPhase, frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+            }
+        };
+        window.addOnFrameMetricsAvailableListener(listener, handler);
+        enabled = true;
+    }
+
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    private synchronized void detachListener(@NonNull Window window) {
+        enabled = false;
+        phase = null;
+        if (listener != null) {
+            try {
+                window.removeOnFrameMetricsAvailableListener(listener);
+            } catch (IllegalArgumentException e) {
+                // listener wasn't added to this window
+                Log.w(TAG, "Unable to remove frame metrics listener", e);
+            }
+            listener = null;
+        }
+    }
+
+    /**
+     * Attribute frames rendered from now on to given phase.
+     * This is cheap and can be called for every event, e.g. on every scroll step.
+     */
+    public void mark(@NonNull Phase phase) {
+        if (enabled) {
+            this.phase = phase;
+            this.phaseMarkedAt = SystemClock.uptimeMillis();
+        }
+    }
+
+    private synchronized void recordFrame(@NonNull Phase phase, long durationNanos) {
+        frameTimes[phase.ordinal()].record(durationNanos / 1000000);
+        if (durationNanos > frameBudgetNanos) {
+            jankFrames[phase.ordinal()] += 1;
+        }
+    }
+
+    /**
+     * @param millis time from start of search until results are displayed
+     */
+    public synchronized void recordSearch(long millis) {
+        if (enabled) {
+            searchTimes.record(millis);
+        }
+    }
+
+    /**
+     * Record duration of a task that is done once, e.g. during startup.
+     * Tasks are recorded even if frame times aren't, last duration of each task is kept.
+     *
+     * @param name   name of task
+     * @param millis time spent on main thread
+     */
+    public synchronized void recordTask(@NonNull String name, long millis) {
+        taskTimes.put(name, millis);
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < frameTimes.length; i++) {
+            frameTimes[i].clear();
+            jankFrames[i] = 0;
+        }
+        searchTimes.clear();
+    }
+
+    /**
+     * @return human readable report of all recorded frame and search times
+     */
+    @NonNull
+    public synchronized String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("frame budget: ").append(frameBudgetNanos / 1000).append("us\n");
+        for (Phase p : Phase.values()) {
+            DurationHistogram histogram = frameTimes[p.ordinal()];
+            int jankPercent = histogram.getCount() > 0 ? jankFrames[p.ordinal()] * 100 / histogram.getCount() : 0;
+            report.append(p.name().toLowerCase(Locale.ROOT)).append(": ").append(histogram)
+                    .append(", jank=").append(jankPercent).append("%\n");
+        }
+        report.append("search: ").append(searchTimes).append('\n');
+        for (Map.Entry<String, Long> task : taskTimes.entrySet()) {
+            report.append(task.getKey()).append(": ").append(task.getValue()).append("ms\n");
+        }
+        return report.toString();
+    }
+}
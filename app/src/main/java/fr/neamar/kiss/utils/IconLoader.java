@@ -0,0 +1,243 @@
+package fr.neamar.kiss.utils;
+
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Loads icons on a dedicated, bounded executor.
+ * <p/>
+ * Pending loads are started by {@link Priority}: icons of visible rows first, then favorites,
+ * prefetched icons last. Icon loads don't compete with other async tasks of the app this way.
+ * Requests for the same key share one load while it's pending or running, each of them receives
+ * its own drawable instance. Cancelled requests are removed from the queue, so they never start
+ * loading if nobody else is waiting for the icon.
+ */
+public class IconLoader {
+    private static final String TAG = IconLoader.class.getSimpleName();
+
+    /**
+     * Priorities of icon loads, in order
+     */
+    public enum Priority {
+        VISIBLE,
+        FAVORITE,
+        PREFETCH
+    }
+
+    /**
+     * Number of icons that may be loaded at the same time
+     */
+    private static final int POOL_SIZE = 2;
+
+    private static IconLoader instance = null;
+
+    private final ThreadPoolExecutor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicLong sequence = new AtomicLong();
+    // jobs which are pending or running, by key
+    private final Map<Object, Job> jobs = new HashMap<>();
+
+    private IconLoader() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                return new Thread(r, "IconLoader #" + count.getAndIncrement());
+            }
+        };
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized IconLoader getInstance() {
+        if (instance == null) {
+            instance = new IconLoader();
+        }
+        return instance;
+    }
+
+    /**
+     * Load icon in background.
+     *
+     * @param priority priority of this request
+     * @param key      identifies the icon, requests with same key share one load. If null, load isn't shared.
+     * @param loader   loads the icon, called in background
+     * @param callback receives the loaded icon on main thread, unless request was cancelled
+     * @return request, can be used to cancel loading
+     */
+    @NonNull
+    public Request load(@NonNull Priority priority, @Nullable Object key, @NonNull Supplier<Drawable> loader, @NonNull Consumer<Drawable> callback) {
+        synchronized (jobs) {
+            Job job = key != null ? jobs.get(key) : null;
+            if (job == null) {
+                job = new Job(key, priority, loader);
+                if (key != null) {
+                    jobs.put(key, job);
+                }
+                Request request = job.addRequest(callback);
+                executor.execute(job);
+                return request;
+            }
+            Request request = job.addRequest(callback);
+            if (priority.compareTo(job.priority) < 0 && executor.getQueue().remove(job)) {
+                // load is still pending, requeue with higher priority
+                job.priority = priority;
+                job.sequence = sequence.getAndIncrement();
+                executor.execute(job);
+            }
+            return request;
+        }
+    }
+
+    private void cancel(Request request) {
+        synchronized (jobs) {
+            Job job = request.job;
+            job.requests.remove(request);
+            if (job.requests.isEmpty() && executor.getQueue().remove(job)) {
+                // nobody waits for this icon, don't load it at all
+                removeJob(job);
+            }
+        }
+    }
+
+    private void removeJob(Job job) {
+        if (job.key != null && jobs.get(job.key) == job) {
+            jobs.remove(job.key);
+        }
+    }
+
+    private void onLoaded(Job job, Drawable drawable) {
+        List<Request> requests;
+        synchronized (jobs) {
+            removeJob(job);
+            requests = new ArrayList<>(job.requests);
+            job.requests.clear();
+        }
+        handler.post(() -> {
+            boolean delivered = false;
+            for (Request request : requests) {
+                if (!request.isCancelled()) {
+                    // every view gets its own drawable, bounds and callback are set per view
+                    request.callback.accept(delivered ? newInstance(drawable) : drawable);
+                    delivered = true;
+                }
+            }
+        });
+    }
+
+    /**
+     * @return new drawable sharing the state (e.g. the bitmap) of given drawable
+     */
+    @Nullable
+    private static Drawable newInstance(@Nullable Drawable drawable) {
+        if (drawable == null) {
+            return null;
+        }
+        Drawable.ConstantState state = drawable.getConstantState();
+        if (state == null) {
+            Log.w(TAG, "Unable to copy icon, drawable is shared: " + drawable);
+            return drawable;
+        }
+        return state.newDrawable();
+    }
+
+    /**
+     * Request for an icon
+     */
+    public class Request {
+        private final Job job;
+        private final Consumer<Drawable> callback;
+        private volatile boolean cancelled = false;
+
+        private Request(Job job, Consumer<Drawable> callback) {
+            this.job = job;
+            this.callback = callback;
+        }
+
+        /**
+         * Icon won't be delivered to this request anymore
+         */
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                IconLoader.this.cancel(this);
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return true, if icon with given key is loaded for this request and not delivered yet
+         */
+        public boolean isLoading(@Nullable Object key) {
+            synchronized (jobs) {
+                return !cancelled && key != null && key.equals(job.key) && jobs.get(key) == job;
+            }
+        }
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        private final Object key;
+        private final Supplier<Drawable> loader;
+        // guarded by jobs
+        private final List<Request> requests = new ArrayList<>(1);
+        private Priority priority;
+        private long sequence;
+
+        private Job(Object key, Priority priority, Supplier<Drawable> loader) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = IconLoader.this.sequence.getAndIncrement();
+            this.loader = loader;
+        }
+
+        private Request addRequest(Consumer<Drawable> callback) {
+            Request request = new Request(this, callback);
+            requests.add(request);
+            return request;
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            Drawable drawable = null;
+            try {
+                drawable = loader.get();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Unable to load icon " + key, e);
+            }
+            onLoaded(this, drawable);
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int result = priority.compareTo(other.priority);
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package fr.neamar.kiss.utils;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.function.Predicate;
+
+/**
+ * Process-wide memory cache for icon bitmaps, sized in bytes.
+ * <p/>
+ * Cached bitmaps are shared, every caller wraps them in its own drawable.
+ * Keys are prefixed with a generation, which is incremented whenever icon pack, shape or theme
+ * change. This way icons rendered with an outdated configuration are never returned, even if
+ * they are stored by a load that was started before the change.
+ */
+public class IconMemoryCache {
+    private static final String TAG = IconMemoryCache.class.getSimpleName();
+
+    private final LruCache<String, Bitmap> mCache;
+    private volatile int mGeneration = 0;
+
+    public IconMemoryCache() {
+        // use 1/8th of the available memory for icons
+        this((int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @param maxSize maximum size of all cached bitmaps in bytes
+     */
+    public IconMemoryCache(int maxSize) {
+        mCache = new LruCache<String, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(@NonNull String key, @NonNull Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * @return current generation, must be passed when storing or retrieving icons
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Invalidate all cached icons, e.g. after icon pack or shape changed.
+     */
+    public void newGeneration() {
+        synchronized (this) {
+            mGeneration += 1;
+            mCache.evictAll();
+        }
+    }
+
+    /**
+     * Invalidate some cached icons, e.g. icons of an updated package.
+     * Generation is kept, so all other icons stay cached.
+     *
+     * @param keyFilter returns true for keys to remove
+     */
+    public void remove(@NonNull Predicate<String> keyFilter) {
+        synchronized (this) {
+            String prefix = getKey(mGeneration, "");
+            for (String key : mCache.snapshot().keySet()) {
+                if (key.startsWith(prefix) && keyFilter.test(key.substring(prefix.length()))) {
+                    mCache.remove(key);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    public Bitmap get(int generation, @NonNull String key) {
+        return mCache.get(getKey(generation, key));
+    }
+
+    public void put(int generation, @NonNull String key, @NonNull Bitmap bitmap) {
+        if (generation == mGeneration) {
+            mCache.put(getKey(generation, key), bitmap);
+        }
+    }
+
+    public int getHitCount() {
+        return mCache.hitCount();
+    }
+
+    public int getMissCount() {
+        return mCache.missCount();
+    }
+
+    /**
+     * @return bytes used by cached bitmaps
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    /**
+     * @return maximum bytes of cached bitmaps
+     */
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    /**
+     * Release memory depending on given level, see {@link ComponentCallbacks2#onTrimMemory(int)}.
+     * Icons are kept while the screen is off, as they will be needed again right away.
+     *
+     * @param level the memory-related event that was raised.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            mCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+        Log.i(TAG, "Trimmed icons for level " + level + ": " + this);
+    }
+
+    @NonNull
+    private static String getKey(int generation, @NonNull String key) {
+        return generation + "/" + key;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "size=" + size() + " bytes, hits=" + getHitCount() + ", misses=" + getMissCount();
+    }
+}
@@ -9,6 +9,7 @@ import android.content.pm.ApplicationInfo;
 import android.content.pm.LauncherActivityInfo;
 import android.content.pm.LauncherApps;
 import android.content.pm.LauncherUserInfo;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.graphics.drawable.Drawable;
@@ -19,7 +20,9 @@ import android.os.UserManager;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.pm.PackageInfoCompat;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -314,6 +317,32 @@ public class PackageManagerUtils {
         return getDefaultActivityIcon(ctx);
     }
 
+    /**
+     * Get a string that changes whenever given package is installed or updated.
+     * For packages not installed for the current user, the installed apk is used instead of the version.
+     *
+     * @param context     context
+     * @param packageName package name
+     * @param user        user the package is installed for
+     * @return version of package, null if package can't be found
+     */
+    @Nullable
+    public static String getPackageVersion(@NonNull Context context, @NonNull String packageName, @NonNull UserHandle user) {
+        if (user.isCurrentUser()) {
+            try {
+                PackageInfo packageInfo = context.getPackageManager().getPackageInfo(packageName, 0);
+                return PackageInfoCompat.getLongVersionCode(packageInfo) + "-" + packageInfo.lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException e) {
+                Log.w(TAG, "Unable to find package " + packageName);
+            }
+        }
+        ApplicationInfo appInfo = getApplicationInfo(context, packageName, user);
+        if (appInfo != null && appInfo.sourceDir != null) {
+            return appInfo.sourceDir.hashCode() + "-" + new File(appInfo.sourceDir).lastModified();
+        }
+        return null;
+    }
+
     public static boolean isAppSuspended(ApplicationInfo appInfo) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
             return (appInfo.flags & ApplicationInfo.FLAG_SUSPENDED) != 0;
@@ -0,0 +1,419 @@
+package fr.neamar.kiss.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk cache for icons, packed into one file.
+ * <p/>
+ * Icons are stored as raw ARGB_8888 tiles of a fixed size in an append-only data file, so no
+ * image encoding or decoding is needed. An index file maps the full cache key to the position of
+ * the tile. Tiles are read through a memory mapped buffer and copied straight into a bitmap.
+ * <p/>
+ * Keys are expected to contain everything the icon depends on, so entries never need to be
+ * invalidated. Unused entries are removed by {@link #collectGarbage(long, long)}.
+ */
+public class PackedIconCache {
+    private static final String TAG = PackedIconCache.class.getSimpleName();
+
+    private static final int MAGIC = 0x4B495353; // KISS
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int BYTES_PER_PIXEL = 4;
+    // last usage of entries is persisted at most once a day
+    private static final long TOUCH_INTERVAL = 24 * 60 * 60 * 1000L;
+    // index is rewritten when it has more records than this many per entry
+    private static final int MAX_INDEX_RECORDS_PER_ENTRY = 2;
+
+    private final File dir;
+    private final File dataFile;
+    private final File indexFile;
+    private final int tileSize;
+    private final int tileBytes;
+
+    private final Map<String, Entry> index = new HashMap<>();
+    private RandomAccessFile data = null;
+    private DataOutputStream indexOutput = null;
+    private MappedByteBuffer mapped = null;
+    // number of records in index file, including outdated ones
+    private int indexRecords = 0;
+
+    /**
+     * @param dir      directory where cache files are stored
+     * @param tileSize width and height of stored icons in px
+     */
+    public PackedIconCache(@NonNull File dir, int tileSize) {
+        this.dir = dir;
+        this.dataFile = new File(dir, "icons.dat");
+        this.indexFile = new File(dir, "icons.idx");
+        this.tileSize = tileSize;
+        this.tileBytes = tileSize * tileSize * BYTES_PER_PIXEL;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public synchronized boolean contains(@NonNull String key) {
+        return open() && index.containsKey(key);
+    }
+
+    /**
+     * Read icon from cache
+     *
+     * @param key   cache key
+     * @param reuse bitmap that may be used for the result, must be mutable ARGB_8888 of tile size
+     * @return icon, null if not found
+     */
+    @Nullable
+    public synchronized Bitmap get(@NonNull String key, @Nullable Bitmap reuse) {
+        if (!open()) {
+            return null;
+        }
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            ByteBuffer tile = getTile(entry.offset);
+            Bitmap bitmap = reuse;
+            if (bitmap == null || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888
+                    || bitmap.getWidth() != tileSize || bitmap.getHeight() != tileSize) {
+                bitmap = Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.ARGB_8888);
+            }
+            bitmap.copyPixelsFromBuffer(tile);
+            touch(key, entry);
+            return bitmap;
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Unable to read icon " + key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Append icon to cache, icon is scaled to tile size if needed.
+     * Nothing is stored if an icon with same key already exists.
+     *
+     * @param key    cache key
+     * @param bitmap icon
+     */
+    public synchronized void put(@NonNull String key, @NonNull Bitmap bitmap) {
+        if (!open() || index.containsKey(key)) {
+            return;
+        }
+        try {
+            Bitmap tile = toTile(bitmap);
+            ByteBuffer buffer = ByteBuffer.allocate(tileBytes);
+            tile.copyPixelsToBuffer(buffer);
+            if (tile != bitmap) {
+                BitmapPool.getInstance().release(tile);
+            }
+            buffer.rewind();
+            long offset = data.length();
+            FileChannel channel = data.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, offset + buffer.position());
+            }
+            Entry entry = new Entry(offset, System.currentTimeMillis());
+            writeIndexEntry(indexOutput, key, entry);
+            indexOutput.flush();
+            indexRecords++;
+            index.put(key, entry);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to store icon " + key, e);
+            close();
+        } catch (RuntimeException e) {
+            // e.g. hardware bitmaps can't be copied
+            Log.e(TAG, "Unable to store icon " + key, e);
+        }
+    }
+
+    /**
+     * Remove icons not used for a long time, and least recently used icons if cache is too big.
+     * Files are only rewritten if something was removed.
+     *
+     * @param maxSize maximum size of cached icons in bytes
+     * @param maxAge  maximum time in ms since last usage of an icon
+     */
+    public synchronized void collectGarbage(long maxSize, long maxAge) {
+        if (!open()) {
+            return;
+        }
+        long minLastUsed = System.currentTimeMillis() - maxAge;
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.entrySet());
+        entries.sort((lhs, rhs) -> Long.compare(rhs.getValue().lastUsed, lhs.getValue().lastUsed));
+
+        List<Map.Entry<String, Entry>> kept = new ArrayList<>(entries.size());
+        long keptSize = 0;
+        for (Map.Entry<String, Entry> entry : entries) {
+            if (entry.getValue().lastUsed < minLastUsed || keptSize + tileBytes > maxSize) {
+                break;
+            }
+            kept.add(entry);
+            keptSize += tileBytes;
+        }
+
+        try {
+            long usedSize = data.length() - HEADER_SIZE;
+            if (kept.size() == entries.size() && usedSize == keptSize) {
+                return;
+            }
+            compact(kept);
+            Log.i(TAG, "Removed " + (entries.size() - kept.size()) + " icon(s), freed " + (usedSize - keptSize) + " bytes");
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to compact icon cache", e);
+            close();
+            index.clear();
+            deleteFile(dataFile);
+            deleteFile(indexFile);
+        }
+    }
+
+    /**
+     * Rewrite cache files with given entries only
+     */
+    private void compact(List<Map.Entry<String, Entry>> kept) throws IOException {
+        File compactDataFile = new File(dir, dataFile.getName() + ".tmp");
+        File compactIndexFile = new File(dir, indexFile.getName() + ".tmp");
+        Map<String, Entry> compactIndex = new HashMap<>(kept.size());
+        try (RandomAccessFile compactData = new RandomAccessFile(compactDataFile, "rw");
+             DataOutputStream compactIndexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactIndexFile)))) {
+            compactData.setLength(0);
+            writeHeader(compactData);
+            FileChannel source = data.getChannel();
+            FileChannel target = compactData.getChannel();
+            for (Map.Entry<String, Entry> entry : kept) {
+                long offset = target.size();
+                long transferred = 0;
+                while (transferred < tileBytes) {
+                    transferred += source.transferTo(entry.getValue().offset + transferred, tileBytes - transferred, target);
+                }
+                Entry compactEntry = new Entry(offset, entry.getValue().lastUsed);
+                writeIndexEntry(compactIndexOutput, entry.getKey(), compactEntry);
+                compactIndex.put(entry.getKey(), compactEntry);
+            }
+        }
+        close();
+        if (!compactDataFile.renameTo(dataFile) || !compactIndexFile.renameTo(indexFile)) {
+            throw new IOException("Unable to replace icon cache files");
+        }
+        index.clear();
+        index.putAll(compactIndex);
+        indexRecords = compactIndex.size();
+    }
+
+    /**
+     * Rewrite index file with current entries only, data file is kept as is.
+     */
+    private void compactIndex() throws IOException {
+        File compactIndexFile = new File(dir, indexFile.getName() + ".tmp");
+        try (DataOutputStream compactIndexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compactIndexFile)))) {
+            for (Map.Entry<String, Entry> entry : index.entrySet()) {
+                writeIndexEntry(compactIndexOutput, entry.getKey(), entry.getValue());
+            }
+        }
+        indexOutput.close();
+        indexOutput = null;
+        if (!compactIndexFile.renameTo(indexFile)) {
+            throw new IOException("Unable to replace icon cache index");
+        }
+        indexRecords = index.size();
+        indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+    }
+
+    /**
+     * Persist last usage of entry if it changed significantly, so it's not removed by garbage collection.
+     * Updates are appended to the index, which is rewritten once outdated records dominate.
+     */
+    private void touch(String key, Entry entry) {
+        long now = System.currentTimeMillis();
+        if (now - entry.lastUsed < TOUCH_INTERVAL) {
+            return;
+        }
+        entry.lastUsed = now;
+        try {
+            if (indexRecords >= MAX_INDEX_RECORDS_PER_ENTRY * index.size()) {
+                compactIndex();
+            } else {
+                writeIndexEntry(indexOutput, key, entry);
+                indexOutput.flush();
+                indexRecords++;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to update icon " + key, e);
+            close();
+        }
+    }
+
+    /**
+     * @return number of icons in cache
+     */
+    public synchronized int size() {
+        return open() ? index.size() : 0;
+    }
+
+    private Bitmap toTile(Bitmap bitmap) {
+        if (bitmap.getWidth() == tileSize && bitmap.getHeight() == tileSize && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+            return bitmap;
+        }
+        BitmapPool pool = BitmapPool.getInstance();
+        Bitmap tile = pool.acquire(tileSize, tileSize);
+        Canvas canvas = pool.obtainCanvas(tile);
+        canvas.drawBitmap(bitmap, null, new Rect(0, 0, tileSize, tileSize), new Paint(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG));
+        pool.releaseCanvas(canvas);
+        return tile;
+    }
+
+    private ByteBuffer getTile(long offset) throws IOException {
+        if (mapped == null || mapped.capacity() < offset + tileBytes) {
+            // remap, data file has grown
+            FileChannel channel = data.getChannel();
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer tile = mapped.duplicate();
+        tile.position((int) offset);
+        tile.limit((int) offset + tileBytes);
+        return tile.slice();
+    }
+
+    /**
+     * Open cache files, files are reset if invalid.
+     *
+     * @return true, if cache can be used
+     */
+    private boolean open() {
+        if (data != null) {
+            return true;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Failed to create path " + dir.getPath());
+            return false;
+        }
+        try {
+            if (!readIndex()) {
+                index.clear();
+                deleteFile(dataFile);
+                deleteFile(indexFile);
+            }
+            data = new RandomAccessFile(dataFile, "rw");
+            if (data.length() == 0) {
+                writeHeader(data);
+            }
+            indexOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to open icon cache", e);
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * @return false, if existing files can't be used
+     */
+    private boolean readIndex() throws IOException {
+        index.clear();
+        indexRecords = 0;
+        if (!dataFile.isFile()) {
+            return false;
+        }
+        long dataLength = dataFile.length();
+        try (DataInputStream header = new DataInputStream(new FileInputStream(dataFile))) {
+            if (dataLength < HEADER_SIZE || header.readInt() != MAGIC || header.readInt() != VERSION || header.readInt() != tileSize) {
+                Log.i(TAG, "Icon cache has different format, reset");
+                return false;
+            }
+        }
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            while (true) {
+                String key;
+                Entry entry;
+                try {
+                    key = input.readUTF();
+                    entry = new Entry(input.readLong(), input.readLong());
+                } catch (EOFException e) {
+                    // end of index, a partially written entry at the end is ignored
+                    break;
+                }
+                if (entry.offset < HEADER_SIZE || entry.offset + tileBytes > dataLength) {
+                    return false;
+                }
+                // later entries for the same key update last usage
+                index.put(key, entry);
+                indexRecords++;
+            }
+        }
+        return true;
+    }
+
+    private void writeHeader(RandomAccessFile file) throws IOException {
+        file.writeInt(MAGIC);
+        file.writeInt(VERSION);
+        file.writeInt(tileSize);
+        file.writeInt(0);
+    }
+
+    private static void writeIndexEntry(DataOutputStream output, String key, Entry entry) throws IOException {
+        output.writeUTF(key);
+        output.writeLong(entry.offset);
+        output.writeLong(entry.lastUsed);
+    }
+
+    private void close() {
+        mapped = null;
+        try {
+            if (indexOutput != null) {
+                indexOutput.close();
+            }
+            if (data != null) {
+                data.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to close icon cache", e);
+        }
+        indexOutput = null;
+        data = null;
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete file: " + file.getAbsolutePath());
+        }
+    }
+
+    private static class Entry {
+        private final long offset;
+        private long lastUsed;
+
+        private Entry(long offset, long lastUsed) {
+            this.offset = offset;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
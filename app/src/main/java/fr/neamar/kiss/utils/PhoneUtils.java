@@ -39,14 +39,18 @@ public class PhoneUtils {
             return true;
         }
 
+        return areSamePhoneNumber(number1.toString(), number2.toString());
+    }
+
+    public boolean areSamePhoneNumber(@NonNull String number1, @NonNull String number2) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
             if (TextUtils.isEmpty(countryIso)) {
                 return false;
             } else {
-                return PhoneNumberUtils.areSamePhoneNumber(number1.toString(), number2.toString(), countryIso);
+                return PhoneNumberUtils.areSamePhoneNumber(number1, number2, countryIso);
             }
         } else {
-            return PhoneNumberUtils.compare(number1.toString(), number2.toString());
+            return PhoneNumberUtils.compare(number1, number2);
         }
     }
 
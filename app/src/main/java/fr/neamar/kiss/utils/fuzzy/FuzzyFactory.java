@@ -1,10 +1,10 @@
 package fr.neamar.kiss.utils.fuzzy;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
 import androidx.annotation.NonNull;
-import androidx.preference.PreferenceManager;
+
+import fr.neamar.kiss.KissApplication;
 
 public class FuzzyFactory {
 
@@ -13,8 +13,7 @@ public class FuzzyFactory {
     }
 
     public static FuzzyScore createFuzzyScore(@NonNull Context context, int[] pattern, boolean detailedMatchIndices) {
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        if (prefs.getBoolean("use-fuzzy-score-v1", false)) {
+        if (KissApplication.getApplication(context).getDataHandler().getPreferences().isFuzzyScoreV1()) {
             return new FuzzyScoreV1(pattern, detailedMatchIndices);
         } else {
             return new FuzzyScoreV2(pattern, detailedMatchIndices);
@@ -21,4 +21,15 @@ public interface FuzzyScore {
     MatchInfo match(CharSequence text);
 
     MatchInfo match(int[] text);
+
+    /**
+     * Match only a part of given code points, e.g. one entry of a shared array.
+     * Matched indices are relative to offset.
+     *
+     * @param text   code points
+     * @param offset index of first code point to match
+     * @param length number of code points to match
+     * @return {@link MatchInfo}, with match set to true if each character in pattern is found sequentially within text
+     */
+    MatchInfo match(int[] text, int offset, int length);
 }
@@ -139,11 +139,16 @@ public class FuzzyScoreV1 implements FuzzyScore {
      */
     @Override
     public MatchInfo match(int[] text) {
+        return match(text, 0, text.length);
+    }
+
+    @Override
+    public MatchInfo match(int[] text, int offset, int length) {
         // Loop variables
         int score = 0;
         int patternIdx = 0;
         int strIdx = 0;
-        int strLength = text.length;
+        int strLength = length;
         boolean fullWord = false;
         boolean prevMatched = false;
         boolean prevLower = false;
@@ -167,7 +172,7 @@ public class FuzzyScoreV1 implements FuzzyScore {
                 patternChar = this.patternChar[patternIdx];
                 patternLower = this.patternLower[patternIdx];
             }
-            int strChar = text[strIdx];
+            int strChar = text[offset + strIdx];
             int strLower = Character.toLowerCase(strChar);
             int strUpper = Character.toUpperCase(strChar);
             boolean isWhitespace = Character.isWhitespace(strChar);
@@ -139,13 +139,20 @@ public class FuzzyScoreV2 implements FuzzyScore {
      */
     @Override
     public MatchInfo match(int[] str) {
+        return match(str, 0, str.length);
+    }
+
+    @Override
+    public MatchInfo match(int[] str, int offset, int length) {
         int recursionCount = 0;
         int recursionLimit = 7; // originally 10
-        int maxMatches = Math.min(patternLength, str.length);
+        int maxMatches = Math.min(patternLength, length);
         List<Integer> matches = new ArrayList<>();
 
         MatchInfo matchInfo = matchRecursive(
                 str,
+                offset,
+                length,
                 0 /* patternCurIndex */,
                 0 /* strCurrIndex */,
                 null /* srcMatches */,
@@ -166,6 +173,8 @@ public class FuzzyScoreV2 implements FuzzyScore {
 
     private MatchInfo matchRecursive(
             int[] str,
+            int offset,
+            int length,
             int patternCurIndex,
             int strCurrIndex,
             List<Integer> srcMatches,
@@ -181,7 +190,7 @@ public class FuzzyScoreV2 implements FuzzyScore {
         }
 
         // Return if we reached ends of strings.
-        if (patternCurIndex == patternLength || strCurrIndex == str.length) {
+        if (patternCurIndex == patternLength || strCurrIndex == length) {
             return MatchInfo.UNMATCHED;
         }
 
@@ -192,9 +201,9 @@ public class FuzzyScoreV2 implements FuzzyScore {
 
         // Loop through pattern and str looking for a match.
         boolean firstMatch = true;
-        while (patternCurIndex < patternLength && strCurrIndex < str.length) {
+        while (patternCurIndex < patternLength && strCurrIndex < length) {
             // Match found.
-            if (patternLower[patternCurIndex] == Character.toLowerCase(str[strCurrIndex])) {
+            if (patternLower[patternCurIndex] == Character.toLowerCase(str[offset + strCurrIndex])) {
                 if (nextMatch >= maxMatches) {
                     return MatchInfo.UNMATCHED;
                 }
@@ -208,6 +217,8 @@ public class FuzzyScoreV2 implements FuzzyScore {
                 List<Integer> recursiveMatches = new ArrayList<>();
                 MatchInfo recursiveResult = matchRecursive(
                         str,
+                        offset,
+                        length,
                         patternCurIndex,
                         strCurrIndex + 1,
                         matches,
@@ -246,7 +257,7 @@ public class FuzzyScoreV2 implements FuzzyScore {
             outScore += penalty;
 
             //Apply unmatched penalty
-            int unmatched = str.length - nextMatch;
+            int unmatched = length - nextMatch;
             outScore += unmatched_letter_penalty * unmatched;
 
             // Apply ordering bonuses
@@ -263,8 +274,8 @@ public class FuzzyScoreV2 implements FuzzyScore {
                 // Check for bonuses based on neighbor character value.
                 if (currIdx > 0) {
                     // Camel case
-                    int neighbor = str[currIdx - 1];
-                    int curr = str[currIdx];
+                    int neighbor = str[offset + currIdx - 1];
+                    int curr = str[offset + currIdx];
                     if (
                             neighbor != Character.toUpperCase(neighbor) &&
                                     curr != Character.toLowerCase(curr)
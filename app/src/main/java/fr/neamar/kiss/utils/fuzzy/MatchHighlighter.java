@@ -0,0 +1,97 @@
+package fr.neamar.kiss.utils.fuzzy;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.neamar.kiss.normalizer.StringNormalizer;
+
+/**
+ * Highlight ranges of a query in normalized texts.
+ * <p/>
+ * Ranges are computed once per text and kept for the lifetime of the query. Texts of results can be
+ * prepared in background when the search is done, so binding a result only needs to apply spans.
+ */
+public class MatchHighlighter {
+    private static final int[] NO_MATCH = new int[0];
+
+    private final FuzzyScore fuzzyScore;
+    private final Map<StringNormalizer.Result, int[]> ranges = new IdentityHashMap<>();
+
+    /**
+     * @param fuzzyScore fuzzy score for query, must be created with detailed match indices
+     */
+    public MatchHighlighter(@NonNull FuzzyScore fuzzyScore) {
+        this.fuzzyScore = fuzzyScore;
+    }
+
+    /**
+     * Compute highlight ranges of text, so they are available when the text is displayed.
+     */
+    public void prepare(@Nullable StringNormalizer.Result normalized) {
+        if (normalized != null) {
+            getRanges(normalized);
+        }
+    }
+
+    /**
+     * Compute highlight ranges of text from an existing match, e.g. the one used to find the result.
+     *
+     * @param normalized normalized text
+     * @param matchInfo  match of normalized text with same query, must have detailed match indices
+     */
+    public synchronized void prepare(@NonNull StringNormalizer.Result normalized, @NonNull MatchInfo matchInfo) {
+        ranges.put(normalized, computeRanges(matchInfo, normalized));
+    }
+
+    /**
+     * @param normalized normalized text
+     * @return pairs of start (inclusive) and end (exclusive) positions in original text, null if query doesn't match
+     */
+    @Nullable
+    public synchronized int[] getRanges(@NonNull StringNormalizer.Result normalized) {
+        int[] result = ranges.get(normalized);
+        if (result == null) {
+            result = computeRanges(fuzzyScore.match(normalized.codePoints), normalized);
+            ranges.put(normalized, result);
+        }
+        return result == NO_MATCH ? null : result;
+    }
+
+    /**
+     * Join adjacent matched indices to ranges and map them to positions in original text.
+     */
+    @NonNull
+    static int[] computeRanges(@NonNull MatchInfo matchInfo, @NonNull StringNormalizer.Result normalized) {
+        if (!matchInfo.match) {
+            return NO_MATCH;
+        }
+        List<Integer> matchedIndices = matchInfo.getMatchedIndices();
+        if (matchedIndices == null || matchedIndices.isEmpty()) {
+            return new int[0];
+        }
+
+        int[] result = new int[matchedIndices.size() * 2];
+        int count = 0;
+        int start = matchedIndices.get(0);
+        int end = start + 1;
+        for (int i = 1; i < matchedIndices.size(); i += 1) {
+            int index = matchedIndices.get(i);
+            if (end == index) {
+                end += 1;
+            } else {
+                result[count++] = normalized.mapPosition(start);
+                result[count++] = normalized.mapPosition(end);
+                start = index;
+                end = start + 1;
+            }
+        }
+        result[count++] = normalized.mapPosition(start);
+        result[count++] = normalized.mapPosition(end);
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -31,4 +31,25 @@ public class MatchInfo {
     public List<Integer> getMatchedIndices() {
         return matchedIndices;
     }
+
+    /**
+     * Fuzzy scores reuse their match info for every match, use this to keep a result.
+     *
+     * @return copy which isn't changed by later matches, {@link #UNMATCHED} if there is no match
+     */
+    public MatchInfo copy() {
+        if (!match) {
+            return UNMATCHED;
+        }
+        MatchInfo copy;
+        if (matchedIndices != null) {
+            copy = new MatchInfo(matchedIndices.size());
+            copy.matchedIndices.addAll(matchedIndices);
+        } else {
+            copy = new MatchInfo();
+        }
+        copy.match = true;
+        copy.score = score;
+        return copy;
+    }
 }
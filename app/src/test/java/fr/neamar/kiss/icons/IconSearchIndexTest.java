@@ -0,0 +1,51 @@
+package fr.neamar.kiss.icons;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import fr.neamar.kiss.normalizer.StringNormalizer;
+import fr.neamar.kiss.utils.fuzzy.FuzzyScoreV2;
+
+class IconSearchIndexTest {
+    private static final List<String> ICONS = Arrays.asList("com_google_maps", "calculator", "google_camera", "camera", "Maps.Go");
+
+    private static List<String> search(String query) {
+        IconSearchIndex<String> index = new IconSearchIndex<>(ICONS, text -> text);
+        int[] codePoints = StringNormalizer.normalizeWithResult(query, true).codePoints;
+        return index.search(codePoints, new FuzzyScoreV2(codePoints, false));
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        assertThat(search(""), contains(ICONS.toArray()));
+    }
+
+    @Test
+    public void testTokenPrefix() {
+        assertThat(search("maps"), contains("com_google_maps", "Maps.Go"));
+        assertThat(search("cam"), contains("google_camera", "camera"));
+    }
+
+    @Test
+    public void testAllTokensMustMatch() {
+        assertThat(search("goo cam"), contains("google_camera"));
+    }
+
+    @Test
+    public void testFuzzyAfterPrefix() {
+        // prefix matches first, fuzzy matches afterwards in index order
+        assertThat(search("ca"), contains("calculator", "google_camera", "camera", "com_google_maps"));
+        assertThat(search("cmr"), contains("google_camera", "camera"));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertThat(search("xyz"), empty());
+    }
+}
@@ -0,0 +1,79 @@
+package fr.neamar.kiss.loader;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class LoadSchedulerTest {
+
+    @Test
+    public void testStagesStartByPriority() throws InterruptedException {
+        LoadScheduler scheduler = new LoadScheduler(Thread::new);
+        List<LoadScheduler.Stage> started = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch appsRunning = new CountDownLatch(1);
+        CountDownLatch releaseApps = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(3);
+
+        // same order as providers are connected by data handler: app, contacts, shortcuts
+        scheduler.getExecutor(LoadScheduler.Stage.APPS).execute(() -> {
+            started.add(LoadScheduler.Stage.APPS);
+            appsRunning.countDown();
+            await(releaseApps);
+            allDone.countDown();
+        });
+        await(appsRunning);
+        scheduler.getExecutor(LoadScheduler.Stage.CONTACTS).execute(() -> {
+            started.add(LoadScheduler.Stage.CONTACTS);
+            allDone.countDown();
+        });
+        scheduler.getExecutor(LoadScheduler.Stage.SHORTCUTS).execute(() -> {
+            started.add(LoadScheduler.Stage.SHORTCUTS);
+            allDone.countDown();
+        });
+        releaseApps.countDown();
+
+        assertThat(allDone.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(started, contains(LoadScheduler.Stage.APPS, LoadScheduler.Stage.SHORTCUTS, LoadScheduler.Stage.CONTACTS));
+    }
+
+    @Test
+    public void testSameStageStartsInOrderOfSubmission() throws InterruptedException {
+        LoadScheduler scheduler = new LoadScheduler(Thread::new);
+        List<Integer> started = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch allDone = new CountDownLatch(3);
+
+        scheduler.getExecutor(LoadScheduler.Stage.CONTACTS).execute(() -> {
+            await(releaseFirst);
+            started.add(1);
+            allDone.countDown();
+        });
+        for (int i = 2; i <= 3; i++) {
+            int task = i;
+            scheduler.getExecutor(LoadScheduler.Stage.CONTACTS).execute(() -> {
+                started.add(task);
+                allDone.countDown();
+            });
+        }
+        releaseFirst.countDown();
+
+        assertThat(allDone.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(started, contains(1, 2, 3));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
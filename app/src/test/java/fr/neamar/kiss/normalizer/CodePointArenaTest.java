@@ -0,0 +1,65 @@
+package fr.neamar.kiss.normalizer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import fr.neamar.kiss.utils.fuzzy.FuzzyScore;
+import fr.neamar.kiss.utils.fuzzy.FuzzyScoreV2;
+import fr.neamar.kiss.utils.fuzzy.MatchInfo;
+
+public class CodePointArenaTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-", "Jean-Claude Dupont", "Élodie Würth", "ﬁsh & chips", "𝔘𝔫𝔦𝔠𝔬𝔡𝔢"})
+    public void testCodePoints(String input) {
+        StringNormalizer.Result original = StringNormalizer.normalizeWithResult(input, false);
+
+        CodePointArena arena = new CodePointArena(1, 1);
+        arena.add(StringNormalizer.normalizeWithResult("some other value", false));
+        int handle = arena.add(original);
+        arena.add(StringNormalizer.normalizeWithResult("and one more", false));
+        arena.trimToSize();
+
+        assertThat(arena.getCodePoints(handle), equalTo(original.codePoints));
+        assertThat(arena.getString(handle), equalTo(original.toString()));
+        assertThat(arena.length(handle), equalTo(original.length()));
+        assertThat(arena.equalsAt(handle, original), equalTo(true));
+        assertThat(arena.size(), equalTo(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jcd", "dupont", "claude", "elodie", "xyz"})
+    public void testMatchInPlace(String query) {
+        StringNormalizer.Result name = StringNormalizer.normalizeWithResult("Jean-Claude Dupont", false);
+        FuzzyScore fuzzyScore = new FuzzyScoreV2(StringNormalizer.normalizeWithResult(query, false).codePoints, true);
+        MatchInfo expected = fuzzyScore.match(name.codePoints);
+        boolean expectedMatch = expected.match;
+        int expectedScore = expected.score;
+
+        CodePointArena arena = new CodePointArena();
+        arena.add(StringNormalizer.normalizeWithResult("Élodie Würth", false));
+        int handle = arena.add(name);
+        arena.add(StringNormalizer.normalizeWithResult("Claude", false));
+
+        MatchInfo matchInfo = arena.match(handle, fuzzyScore);
+        assertThat(matchInfo.match, equalTo(expectedMatch));
+        assertThat(matchInfo.score, equalTo(expectedScore));
+    }
+
+    @Test
+    public void testNone() {
+        CodePointArena arena = new CodePointArena(1, 1);
+        int handle = arena.add(null);
+        assertThat(handle, equalTo(CodePointArena.NONE));
+        assertThat(arena.getCodePoints(handle), nullValue());
+        assertThat(arena.getString(handle), nullValue());
+        assertThat(arena.match(handle, new FuzzyScoreV2(new int[]{'a'}, false)), nullValue());
+        assertThat(arena.equalsAt(handle, null), equalTo(true));
+        assertThat(arena.size(), equalTo(0));
+    }
+}
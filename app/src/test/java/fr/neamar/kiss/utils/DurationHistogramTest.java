@@ -0,0 +1,65 @@
+package fr.neamar.kiss.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.jupiter.api.Test;
+
+class DurationHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        DurationHistogram histogram = new DurationHistogram(100);
+
+        assertThat(histogram.getCount(), equalTo(0));
+        assertThat(histogram.getPercentile(50), equalTo(-1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        DurationHistogram histogram = new DurationHistogram(100);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.getPercentile(50), equalTo(50));
+        assertThat(histogram.getPercentile(95), equalTo(95));
+        assertThat(histogram.getPercentile(99), equalTo(99));
+        assertThat(histogram.getPercentile(100), equalTo(100));
+    }
+
+    @Test
+    public void testOverflow() {
+        DurationHistogram histogram = new DurationHistogram(100);
+        histogram.record(5);
+        histogram.record(500);
+        histogram.record(-1);
+
+        assertThat(histogram.getCount(), equalTo(3));
+        assertThat(histogram.getPercentile(100), equalTo(101));
+        assertThat(histogram.getPercentile(1), equalTo(0));
+    }
+
+    @Test
+    public void testCountAbove() {
+        DurationHistogram histogram = new DurationHistogram(100);
+        histogram.record(10);
+        histogram.record(16);
+        histogram.record(17);
+        histogram.record(200);
+
+        assertThat(histogram.getCountAbove(16), equalTo(2));
+        assertThat(histogram.getCountAbove(100), equalTo(1));
+        assertThat(histogram.getCountAbove(-5), equalTo(4));
+    }
+
+    @Test
+    public void testClear() {
+        DurationHistogram histogram = new DurationHistogram(100);
+        histogram.record(10);
+        histogram.clear();
+
+        assertThat(histogram.getCount(), equalTo(0));
+        assertThat(histogram.getCountAbove(0), equalTo(0));
+    }
+}
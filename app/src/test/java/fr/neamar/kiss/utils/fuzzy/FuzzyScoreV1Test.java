@@ -46,6 +46,15 @@ class FuzzyScoreV1Test {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("testProvider")
+    public void testMatchRange(String query, String testString, int result) {
+        StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
+        int[] text = StringNormalizer.normalizeWithResult("a b " + testString + " c d", false).codePoints;
+
+        assertThat(createFuzzyScore(queryNormalized.codePoints).match(text, 4, text.length - 8).score, equalTo(result));
+    }
+
     private Integer doFuzzy(int[] query, int[] testString) {
         return createFuzzyScore(query)
                 .match(testString).score;
@@ -8,6 +8,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Stream;
 
 import fr.neamar.kiss.normalizer.StringNormalizer;
@@ -32,6 +34,20 @@ class FuzzyScoreV2Test {
         assertThat(result.score, equalTo(score));
     }
 
+    @ParameterizedTest
+    @MethodSource("testProvider")
+    public void testMatchRange(String query, String testString, int score, boolean match) {
+        StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
+        StringNormalizer.Result testStringNormalized = StringNormalizer.normalizeWithResult(testString, false);
+        int[] text = StringNormalizer.normalizeWithResult("a b " + testString + " c d", false).codePoints;
+
+        List<Integer> expectedIndices = new ArrayList<>(createFuzzyScore(queryNormalized.codePoints).match(testStringNormalized.codePoints).getMatchedIndices());
+        MatchInfo result = createFuzzyScore(queryNormalized.codePoints).match(text, 4, text.length - 8);
+        assertThat(result.match, equalTo(match));
+        assertThat(result.score, equalTo(score));
+        assertThat(result.getMatchedIndices(), equalTo(expectedIndices));
+    }
+
     private static Stream<Arguments> testProvider() {
         return Stream.of(
                 Arguments.of("no match", "some string", 0, false),
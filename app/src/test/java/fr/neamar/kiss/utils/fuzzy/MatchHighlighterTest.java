@@ -0,0 +1,66 @@
+package fr.neamar.kiss.utils.fuzzy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.junit.jupiter.api.Test;
+
+import fr.neamar.kiss.normalizer.StringNormalizer;
+
+class MatchHighlighterTest {
+
+    @Test
+    public void testAdjacentIndicesAreJoined() {
+        assertThat(getRanges("js", "js end"), equalTo(new int[]{0, 2}));
+    }
+
+    @Test
+    public void testSeparateRanges() {
+        assertThat(getRanges("yt", "YouTube"), equalTo(new int[]{0, 1, 3, 4}));
+    }
+
+    @Test
+    public void testRangesAreMappedToOriginalText() {
+        assertThat(getRanges("cafe", "Le Café"), equalTo(new int[]{3, 7}));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertThat(getRanges("no match", "some string"), nullValue());
+    }
+
+    @Test
+    public void testRangesAreComputedOnce() {
+        MatchHighlighter highlighter = createHighlighter("yt");
+        StringNormalizer.Result text = StringNormalizer.normalizeWithResult("YouTube", false);
+        highlighter.prepare(text);
+
+        assertThat(highlighter.getRanges(text), sameInstance(highlighter.getRanges(text)));
+    }
+
+    @Test
+    public void testRangesFromExistingMatch() {
+        StringNormalizer.Result text = StringNormalizer.normalizeWithResult("YouTube", false);
+        FuzzyScore fuzzyScore = new FuzzyScoreV2(StringNormalizer.normalizeWithResult("yt", false).codePoints, true);
+        MatchInfo matchInfo = fuzzyScore.match(text.codePoints).copy();
+        // fuzzy score reuses its match info, copy must not change
+        fuzzyScore.match(StringNormalizer.normalizeWithResult("some text", false).codePoints);
+
+        // highlighter for another query, so ranges can only come from given match
+        MatchHighlighter highlighter = createHighlighter("zz");
+        highlighter.prepare(text, matchInfo);
+
+        assertThat(highlighter.getRanges(text), equalTo(new int[]{0, 1, 3, 4}));
+    }
+
+    private static int[] getRanges(String query, String text) {
+        return createHighlighter(query).getRanges(StringNormalizer.normalizeWithResult(text, false));
+    }
+
+    private static MatchHighlighter createHighlighter(String query) {
+        StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
+        return new MatchHighlighter(new FuzzyScoreV2(queryNormalized.codePoints, true));
+    }
+}